@@ -3,6 +3,8 @@ package com.soccer.client;
 import com.soccer.common.Constants;
 import com.soccer.common.GameState;
 import com.soccer.common.InputPacket;
+import com.soccer.common.SnapshotHistory;
+import com.soccer.common.WireCodec;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.geometry.Insets;
@@ -14,18 +16,25 @@ import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 import javafx.stage.Stage;
 
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.net.Socket;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
 public class AdminClient extends Application {
 
-    private ObjectOutputStream out;
-    private ObjectInputStream in;
+    private DataOutputStream out;
+    private DataInputStream in;
     private boolean isRunning = true;
 
+    // Which match this panel controls (-Dsoccer.room=...), the server's default room otherwise
+    private static final String ROOM = System.getProperty("soccer.room", "main");
+
     // UI Components
     private VBox playerListContainer;
     private Label statusLabel;
@@ -34,6 +43,9 @@ public class AdminClient extends Application {
     // Cache to store the previous list for comparison
     private List<GameState.PlayerState> lastPlayerList = new ArrayList<>();
 
+    // Snapshots we received, the server sends deltas against the last one we acknowledged
+    private final SnapshotHistory receivedSnapshots = new SnapshotHistory(128);
+
     public static void main(String[] args) {
         launch(args);
     }
@@ -81,7 +93,7 @@ public class AdminClient extends Application {
         root.setBottom(bottomBox);
 
         Scene scene = new Scene(root, 600, 600); // Slightly larger window
-        primaryStage.setTitle("Soccer Game - Administrator");
+        primaryStage.setTitle("Soccer Game - Administrator - Room: " + ROOM);
         primaryStage.setScene(scene);
         primaryStage.show();
 
@@ -92,22 +104,29 @@ public class AdminClient extends Application {
     private void connectToServer() {
         try {
             Socket socket = new Socket("localhost", Constants.PORT);
-            out = new ObjectOutputStream(socket.getOutputStream());
-            out.flush();
-            in = new ObjectInputStream(socket.getInputStream());
+            socket.setTcpNoDelay(true);
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
 
             // Identify as ADMIN
             InputPacket loginPkt = new InputPacket();
             loginPkt.command = "ADMIN_LOGIN";
-            out.writeObject(loginPkt);
-            out.flush();
+            loginPkt.roomName = ROOM;
+            WireCodec.writeFrame(out, WireCodec.encodeInput(loginPkt));
 
             Platform.runLater(() -> statusLabel.setText("Connected as ADMIN"));
 
             while (isRunning) {
-                Object obj = in.readObject();
-                if (obj instanceof GameState) {
-                    GameState state = (GameState) obj;
+                ByteBuffer frame = WireCodec.readFrame(in);
+                byte type = WireCodec.openFrame(frame);
+                GameState decoded = null;
+                if (type == WireCodec.MSG_STATE) decoded = WireCodec.decodeState(frame);
+                else if (type == WireCodec.MSG_DELTA) decoded = WireCodec.decodeDelta(frame, receivedSnapshots);
+
+                if (decoded != null) {
+                    GameState state = decoded;
+                    receivedSnapshots.put(state);
+                    send(WireCodec.encodeAck(state.sequence));
 
                     // FIX: Only update UI if player list actually changed (ignoring movement)
                     if (shouldUpdateUI(state.players)) {
@@ -200,10 +219,14 @@ public class AdminClient extends Application {
             pkt.command = cmd;
             pkt.targetIdToApprove = targetId;
             pkt.id = 0; // Admin ID
-            out.writeObject(pkt);
-            out.flush();
+            send(WireCodec.encodeInput(pkt));
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
+
+    // Button clicks (FX thread) and acks (network thread) share the same stream
+    private synchronized void send(byte[] frame) throws IOException {
+        WireCodec.writeFrame(out, frame);
+    }
 }
\ No newline at end of file
@@ -5,6 +5,8 @@ import com.soccer.client.ui.GamePanel;
 import com.soccer.common.Constants;
 import com.soccer.common.GameState;
 import com.soccer.common.InputPacket;
+import com.soccer.common.SnapshotHistory;
+import com.soccer.common.WireCodec;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.geometry.Pos;
@@ -15,27 +17,75 @@ import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
 import javafx.stage.Stage;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class ClientMain extends Application {
     private Stage primaryStage;
     private Socket socket;
-    private ObjectOutputStream out;
-    private ObjectInputStream in;
+    private DataOutputStream out;
+    private DataInputStream in;
     private volatile boolean isConnected = false;
 
+    // Optional UDP channel for snapshots and movement inputs (-Dsoccer.udp=false to turn off)
+    private static final boolean USE_UDP = Boolean.parseBoolean(System.getProperty("soccer.udp", "true"));
+    // Frame cap for the game screen (-Dsoccer.maxFps, 0 = draw on every pulse)
+    private static final int MAX_FPS = Integer.getInteger("soccer.maxFps", 60);
+    private DatagramSocket udpSocket;
+    private volatile boolean isUdpActive = false; // true once the first snapshot came in over UDP
+    private static final long UDP_GIVE_UP_NANOS = 5_000_000_000L;
+    private int inputSequence = 0; // Movement inputs only, commands are not numbered
+    // Server ticks per second, from the JOIN reply: one input is sent per tick
+    private int tickRate = Constants.INPUT_RATE;
+    private int lastSnapshotSequence = -1;
+
     // Generate a random ID so the server knows who sent the packet
     private final int clientId = (int) (Math.random() * 1000000);
-    private GameState currentState;
+    private volatile GameState currentState;
+    // Snapshots we received, the server sends deltas against the last one we acknowledged
+    private final SnapshotHistory receivedSnapshots = new SnapshotHistory(128);
+    // The keys as the keyboard handler sets them. A copy of it is sent every input tick.
     private InputPacket currentInput = new InputPacket();
     private String playerName;
-    private boolean isGameEnding = false;
+    private volatile boolean isGameEnding = false;
+
+    // Fix: inputs used to be sent once per received snapshot, so their rate followed the network.
+    // Now they go out on a fixed timer (once per server tick) and are applied to our own player
+    // right away (client-side prediction), then checked against every snapshot.
+    private final LocalPrediction prediction = new LocalPrediction();
+    // Everyone else is drawn slightly in the past, interpolated between snapshots
+    private final SnapshotBuffer snapshots = new SnapshotBuffer();
+    private ScheduledExecutorService inputTimer;
+
+    // Fix: every snapshot used to post its own Platform.runLater, and when the FX thread fell behind
+    // those piled up and the UI replayed old states late. Now the network thread only overwrites
+    // this slot, and at most one UI update is queued at a time; it always takes the newest state.
+    private final AtomicReference<GameState> latestUiState = new AtomicReference<>();
+    private final AtomicBoolean uiUpdateQueued = new AtomicBoolean(false);
+    // Phase the screens were last switched for (FX thread only), null = check again
+    private GameState.Phase shownPhase = null;
 
     // Flag to prevent the game screen from reloading repeatedly
     private boolean isGameScreenActive = false;
+    private javafx.animation.AnimationTimer renderTimer;
+    // The timer is stopped while the waiting screen shows (it never changes), FX thread only
+    private boolean renderPaused = false;
 
     private ListView<String> lobbyListRed = new ListView<>();
     private ListView<String> lobbyListBlue = new ListView<>();
@@ -74,58 +124,75 @@ public class ClientMain extends Application {
         // Input fields for Server IP and Player Name
         TextField ipField = new TextField("localhost"); ipField.setPromptText("IP Address");
         TextField nameField = new TextField(); nameField.setPromptText("Name");
+        TextField roomField = new TextField(); roomField.setPromptText("Room (empty = any free match)");
         Button joinBtn = new Button("JOIN MATCH"); joinBtn.setStyle("-fx-background-color: #2ecc71; -fx-text-fill: white; -fx-font-weight: bold;");
         Label statusLabel = new Label(""); statusLabel.setTextFill(Color.web("#ff6b6b"));
 
         joinBtn.setOnAction(e -> {
             String ip = ipField.getText().trim(); String name = nameField.getText().trim();
+            String room = roomField.getText().trim();
             if (!name.isEmpty() && !ip.isEmpty()) {
                 playerName = name; joinBtn.setDisable(true); joinBtn.setText("CONNECTING..."); statusLabel.setText("");
                 // Run connection in a separate thread so UI doesn't freeze
-                new Thread(() -> connectToServer(ip, name, statusLabel, joinBtn)).start();
+                new Thread(() -> connectToServer(ip, name, room.isEmpty() ? null : room, statusLabel, joinBtn)).start();
             } else statusLabel.setText("Please enter IP and Name!");
         });
 
-        container.getChildren().addAll(title, ipField, nameField, joinBtn, statusLabel);
+        container.getChildren().addAll(title, ipField, nameField, roomField, joinBtn, statusLabel);
         root.getChildren().add(container);
         primaryStage.setScene(new Scene(root, 800, 600)); primaryStage.show();
     }
 
     // Handles the network connection logic
-    private void connectToServer(String ip, String name, Label statusLabel, Button joinBtn) {
+    private void connectToServer(String ip, String name, String room, Label statusLabel, Button joinBtn) {
         try {
             socket = new Socket(ip, Constants.PORT);
-            out = new ObjectOutputStream(socket.getOutputStream()); out.flush();
-            in = new ObjectInputStream(socket.getInputStream()); isConnected = true;
+            socket.setTcpNoDelay(true);
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream())); isConnected = true;
 
             // Send initial JOIN request
             InputPacket joinPacket = new InputPacket(); joinPacket.command = "JOIN"; joinPacket.id = clientId; joinPacket.playerName = name;
+            joinPacket.roomName = room; // null: the server puts us in any match with a free slot
+            joinPacket.wantsUdp = USE_UDP;
             sendPacket(joinPacket);
 
             // Wait for server response (OK or FAIL)
             try {
-                Object response = in.readObject();
-                if (response instanceof String) {
-                    String msg = (String) response;
+                ByteBuffer response = WireCodec.readFrame(in);
+                if (WireCodec.openFrame(response) == WireCodec.MSG_REPLY) {
+                    String msg = WireCodec.decodeReply(response);
                     if (msg.startsWith("FAIL:")) {
                         String reason = msg.substring(5);
                         // If rejected, show error and re-enable button
                         Platform.runLater(() -> { statusLabel.setText(reason); joinBtn.setDisable(false); joinBtn.setText("JOIN MATCH"); });
                         socket.close(); return;
                     }
+                    // "OK ROOM <name> TICK <rate> [UDP <port> <token>]": which match we are in, how
+                    // fast it ticks, and whether the server accepted our UDP request
+                    String[] parts = msg.split(" ");
+                    for (int i = 1; i + 1 < parts.length; i++) {
+                        if ("ROOM".equals(parts[i])) {
+                            String roomName = parts[i + 1];
+                            Platform.runLater(() -> primaryStage.setTitle("Soccer Client - ID: " + clientId + " - Room: " + roomName));
+                        } else if ("TICK".equals(parts[i])) {
+                            tickRate = Math.max(1, Integer.parseInt(parts[i + 1]));
+                            prediction.setTickRate(tickRate);
+                        } else if ("UDP".equals(parts[i]) && i + 2 < parts.length) {
+                            startUdp(ip, Integer.parseInt(parts[i + 1]), Integer.parseInt(parts[i + 2]));
+                        }
+                    }
                 }
             } catch (Exception e) { return; }
 
             // If success, go to Lobby
             Platform.runLater(this::showLobbyScreen);
+            startInputTimer();
 
             // Start listening loop
             while (isConnected) {
-                Object obj = in.readObject();
-                if (obj instanceof GameState) {
-                    GameState newState = (GameState) obj;
-                    handleServerState(newState);
-                }
+                ByteBuffer frame = WireCodec.readFrame(in);
+                handleSnapshotFrame(frame, false);
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -133,9 +200,71 @@ public class ClientMain extends Application {
         }
     }
 
+    // Opens the UDP channel and keeps saying hello until the server starts sending snapshots on it.
+    // If no datagram ever arrives (NAT, firewall) we give up after UDP_GIVE_UP and stay on TCP.
+    private void startUdp(String ip, int port, int token) throws IOException {
+        udpSocket = new DatagramSocket();
+        udpSocket.connect(new InetSocketAddress(ip, port));
+        udpSocket.setSoTimeout(250);
+
+        Thread udpThread = new Thread(() -> {
+            byte[] hello = WireCodec.encodeUdpHello(clientId, token);
+            byte[] data = new byte[Constants.MAX_DATAGRAM];
+            long started = System.nanoTime();
+            while (isConnected && !udpSocket.isClosed()) {
+                if (!isUdpActive && System.nanoTime() - started > UDP_GIVE_UP_NANOS) {
+                    System.out.println("[Net] No UDP from the server, staying on TCP");
+                    udpSocket.close();
+                    break;
+                }
+                try {
+                    if (!isUdpActive) udpSocket.send(new DatagramPacket(hello, hello.length));
+                    DatagramPacket packet = new DatagramPacket(data, data.length);
+                    udpSocket.receive(packet);
+                    ByteBuffer frame = WireCodec.openDatagram(ByteBuffer.wrap(data, 0, packet.getLength()));
+                    isUdpActive = true;
+                    handleSnapshotFrame(frame, true); // Decoded right away, so 'data' can be reused
+                } catch (SocketTimeoutException e) {
+                    // Nothing yet, send another hello
+                } catch (Exception e) {
+                    // Bad datagram or socket closed
+                }
+            }
+        }, "udp-receiver");
+        udpThread.setDaemon(true);
+        udpThread.start();
+    }
+
+    // Decodes a snapshot (full or delta) from TCP or UDP, acks it and passes it on
+    private synchronized void handleSnapshotFrame(ByteBuffer frame, boolean viaUdp) throws IOException {
+        byte type = WireCodec.openFrame(frame);
+        GameState newState = null;
+        if (type == WireCodec.MSG_STATE) newState = WireCodec.decodeState(frame);
+        else if (type == WireCodec.MSG_DELTA) newState = WireCodec.decodeDelta(frame, receivedSnapshots);
+
+        // null = delta against a baseline we don't have anymore, wait for the next one.
+        // Over UDP snapshots can arrive late or twice, only ever move forward.
+        if (newState == null) return;
+        if (newState.sequence <= lastSnapshotSequence) {
+            // Already had it (the server sends over TCP too until it sees a UDP ack). Ack the datagram
+            // anyway: that is how the server learns its datagrams reach us.
+            if (viaUdp) sendDatagram(WireCodec.encodeAck(newState.sequence));
+            return;
+        }
+        lastSnapshotSequence = newState.sequence;
+
+        receivedSnapshots.put(newState);
+        byte[] ack = WireCodec.encodeAck(newState.sequence);
+        if (viaUdp) sendDatagram(ack); else sendFrame(ack);
+        handleServerState(newState);
+    }
+
     // --- SCENE 2: Lobby Screen ---
     private void showLobbyScreen() {
         isGameScreenActive = false; // Reset flag since we are back in lobby
+        shownPhase = null; // Decide again with the next state, in case the match is already running
+        if (renderTimer != null) renderTimer.stop(); // Nothing to animate in the lobby
+        renderPaused = false;
 
         BorderPane root = new BorderPane(); root.setBackground(createStadiumBackground());
         Label title = new Label("MATCH LOBBY"); title.setStyle("-fx-text-fill: white; -fx-font-family: 'Arial Black'; -fx-font-size: 28px;");
@@ -179,63 +308,170 @@ public class ClientMain extends Application {
         gameScene.setOnKeyReleased(e -> KeyHandler.handle(e.getCode(), false, currentInput));
         primaryStage.setScene(gameScene);
 
-        // Start the game loop (rendering)
-        new javafx.animation.AnimationTimer() {
+        // Start the game loop (rendering). Fix: a new timer used to be started every time the game
+        // screen opened and the old ones kept running, now there is only ever one.
+        // We never draw faster than MAX_FPS, and a pulse where nothing can have changed (no new
+        // snapshot to blend towards, our player didn't move, no rain) is skipped before sampling.
+        // While the waiting screen shows the timer stops altogether, applyLatestState restarts it.
+        if (renderTimer != null) renderTimer.stop();
+        renderPaused = false;
+        long frameNanos = MAX_FPS > 0 ? 1_000_000_000L / MAX_FPS : 0;
+        renderTimer = new javafx.animation.AnimationTimer() {
+            private long lastFrame = 0;
+            private boolean lastPredicted;
+            private double lastPredictedX, lastPredictedY;
+
             @Override public void handle(long now) {
-                if (isGameScreenActive && currentState != null) {
-                    gamePanel.render(currentState);
+                if (!isGameScreenActive || currentState == null) return;
+                // Pulses come at the display rate with some jitter, so allow a little slack
+                if (now - lastFrame < frameNanos * 9 / 10) {
+                    gamePanel.frameStats.skipped(now);
+                    return;
+                }
+
+                // Our own player is drawn where we predict it, not where the last snapshot had it
+                boolean predicted = prediction.isActive();
+                double px = prediction.getX(), py = prediction.getY();
+                boolean predictionMoved = predicted != lastPredicted || (predicted && (px != lastPredictedX || py != lastPredictedY));
+                if (lastFrame != 0 && !predictionMoved && snapshots.isSettled() && !gamePanel.isAnimating()) {
+                    gamePanel.frameStats.skipped(now);
+                    return;
+                }
+                lastPredicted = predicted;
+                lastPredictedX = px;
+                lastPredictedY = py;
+
+                if (predicted) gamePanel.setLocalPlayerPosition(px, py);
+                else gamePanel.clearLocalPlayerPosition();
+                GameState view = snapshots.sample(System.nanoTime());
+                if (gamePanel.render(view != null ? view : currentState)) lastFrame = now;
+
+                if (gamePanel.isShowingWaitingScreen()) {
+                    stop();
+                    renderPaused = true;
                 }
             }
-        }.start();
+        };
+        renderTimer.start();
+    }
+
+    // Sends the held keys once per server tick while a match is running
+    private void startInputTimer() {
+        inputTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "input-sender");
+            t.setDaemon(true);
+            return t;
+        });
+        long periodMicros = 1_000_000L / tickRate;
+        inputTimer.scheduleAtFixedRate(this::sendInputTick, periodMicros, periodMicros, TimeUnit.MICROSECONDS);
+    }
+
+    private void sendInputTick() {
+        GameState state = currentState;
+        // Only send inputs if game is actually running
+        if (state == null || isGameEnding) return;
+        if (state.currentPhase != GameState.Phase.PLAYING && state.currentPhase != GameState.Phase.COUNTDOWN) return;
+
+        // Send a copy: the keyboard handler keeps changing currentInput on the FX thread
+        InputPacket input = new InputPacket();
+        input.up = currentInput.up; input.down = currentInput.down;
+        input.left = currentInput.left; input.right = currentInput.right;
+        input.shoot = currentInput.shoot; input.sprint = currentInput.sprint;
+        input.adminApproveSignal = currentInput.adminApproveSignal;
+        // Reset one-time triggers
+        currentInput.adminApproveSignal = false;
+        currentInput.shoot = false;
+
+        sendPacket(input);
+        prediction.applyInput(input);
     }
 
     // Main logic to route server updates to correct screen
     private void handleServerState(GameState newState) {
         this.currentState = newState;
-        currentInput.id = clientId;
+        snapshots.add(newState, System.nanoTime());
 
-        // Only send inputs if game is actually running
-        if (!isGameEnding && (newState.currentPhase == GameState.Phase.PLAYING || newState.currentPhase == GameState.Phase.COUNTDOWN)) {
-            sendPacket(currentInput);
-            // Reset one-time triggers
-            currentInput.adminApproveSignal = false;
-            currentInput.shoot = false;
+        // Correct our prediction with what the server says about us
+        GameState.PlayerState me = null;
+        for (GameState.PlayerState p : newState.players) {
+            if (p.id == clientId) { me = p; break; }
         }
+        prediction.reconcile(newState, me);
 
-        Platform.runLater(() -> {
-            // Case 1: Back to Lobby (Waiting Phase)
-            if (newState.currentPhase == GameState.Phase.WAITING) {
-                if (isGameScreenActive) {
-                    showLobbyScreen(); // Switch scene back to lobby
-                }
-                updateLobbyLists(newState);
-            }
-            // Case 2: Game Started
-            else if ((newState.currentPhase == GameState.Phase.COUNTDOWN || newState.currentPhase == GameState.Phase.PLAYING)) {
-                // Only switch scene if we aren't already there
-                if (!isGameScreenActive) {
-                    showGameScreen();
-                }
+        latestUiState.set(newState);
+        if (uiUpdateQueued.compareAndSet(false, true)) Platform.runLater(this::applyLatestState);
+    }
+
+    // FX thread: catches the screens up with the newest state. Scenes only change with the phase.
+    private void applyLatestState() {
+        // Clear the flag before taking the state: one that arrives after this queues a new update
+        uiUpdateQueued.set(false);
+        GameState state = latestUiState.getAndSet(null);
+        if (state == null) return;
+
+        // Waiting screen up and the timer stopped: only wake it for a state that looks different
+        if (renderPaused && isGameScreenActive && !gamePanel.wouldShowWaitingScreen(state)) {
+            renderPaused = false;
+            renderTimer.start();
+        }
+
+        if (state.currentPhase == shownPhase) {
+            // Same phase, only the lobby lists can need an update
+            if (state.currentPhase == GameState.Phase.WAITING) updateLobbyLists(state);
+            return;
+        }
+
+        // Case 1: Back to Lobby (Waiting Phase)
+        if (state.currentPhase == GameState.Phase.WAITING) {
+            if (isGameScreenActive) {
+                showLobbyScreen(); // Switch scene back to lobby
             }
-            // Case 3: Game Over
-            else if (newState.currentPhase == GameState.Phase.GAME_OVER) {
-                isGameEnding = false;
+            updateLobbyLists(state);
+        }
+        // Case 2: Game Started
+        else if ((state.currentPhase == GameState.Phase.COUNTDOWN || state.currentPhase == GameState.Phase.PLAYING)) {
+            // Only switch scene if we aren't already there
+            if (!isGameScreenActive) {
+                showGameScreen();
             }
-        });
+        }
+        // Case 3: Game Over
+        else if (state.currentPhase == GameState.Phase.GAME_OVER) {
+            isGameEnding = false;
+        }
+        shownPhase = state.currentPhase;
     }
 
     private void updateLobbyLists(GameState state) {
-        lobbyListRed.getItems().clear(); lobbyListBlue.getItems().clear();
+        List<String> red = new ArrayList<>(), blue = new ArrayList<>();
         for (GameState.PlayerState p : state.players) {
             String entry = p.name + (p.isBot ? " (BOT)" : "");
-            if ("RED".equals(p.team)) lobbyListRed.getItems().add(entry);
-            else lobbyListBlue.getItems().add(entry);
+            if ("RED".equals(p.team)) red.add(entry);
+            else blue.add(entry);
         }
+        // Only touch the lists when the roster changed, every change makes them lay out again
+        if (!red.equals(lobbyListRed.getItems())) lobbyListRed.getItems().setAll(red);
+        if (!blue.equals(lobbyListBlue.getItems())) lobbyListBlue.getItems().setAll(blue);
     }
 
+    // synchronized: the input timer and the FX thread (commands) both number their packets here
     private synchronized void sendPacket(InputPacket packet) {
+        packet.id = clientId;
+        // Only movement is numbered: lastProcessedInput must not skip values for commands
+        // or the prediction would wait for inputs that never come
+        if (packet.command == null) packet.sequence = ++inputSequence;
+        // Movement goes over UDP when we have it; commands (JOIN/START/END) always use TCP
+        if (isUdpActive && packet.command == null) sendDatagram(WireCodec.encodeInput(packet));
+        else sendFrame(WireCodec.encodeInput(packet));
+    }
+
+    private void sendDatagram(byte[] frame) {
+        try { udpSocket.send(new DatagramPacket(frame, frame.length)); } catch (IOException e) {}
+    }
+
+    private synchronized void sendFrame(byte[] frame) {
         if (out == null) return;
-        try { packet.id = clientId; out.reset(); out.writeObject(packet); out.flush(); } catch (IOException e) {}
+        try { WireCodec.writeFrame(out, frame); } catch (IOException e) {}
     }
 
     private void sendCommand(String cmd) { InputPacket pkt = new InputPacket(); pkt.command = cmd; pkt.id = clientId; sendPacket(pkt); }
@@ -244,6 +480,8 @@ public class ClientMain extends Application {
     public void stop() throws Exception {
         super.stop();
         isConnected = false;
+        if (inputTimer != null) inputTimer.shutdownNow();
+        if (udpSocket != null) udpSocket.close();
         if (socket != null && !socket.isClosed()) {
             try { socket.close(); } catch (Exception e) {}
         }
@@ -0,0 +1,66 @@
+package com.soccer.client;
+
+import com.soccer.common.Constants;
+import com.soccer.common.GameState;
+import com.soccer.common.InputPacket;
+import com.soccer.common.PlayerMovement;
+
+import java.util.ArrayDeque;
+
+// Client-side prediction for our own player.
+// Every input we send is applied to our position right away with the server's movement rules
+// (PlayerMovement), so the player reacts on the next frame instead of a round trip later.
+// When a snapshot arrives it is the truth: we take the server's position, drop the inputs it has
+// already applied (lastProcessedInput) and replay the rest on top. If the server agrees with us
+// nothing visibly changes; if it doesn't (a collision, the kick-off pause) we end up where it says.
+//
+// Inputs are added from the input timer thread, snapshots from the network thread,
+// and the position is read by the renderer, so everything here is synchronized.
+public class LocalPrediction {
+    // Inputs the server hasn't confirmed yet. A second of them is plenty; if it never answers
+    // (e.g. we are not in the match yet) the oldest are dropped.
+    private int maxPending = Constants.INPUT_RATE;
+    // The server's tick length: it moves a player by one tick per input (see GameRoom.updatePhysics)
+    private double tickDt = 1.0 / Constants.INPUT_RATE;
+
+    private final ArrayDeque<InputPacket> pending = new ArrayDeque<>();
+    private final double[] moved = new double[4];
+    private double x, y;
+    // Only while the server would move us too: match running and admin approved
+    private boolean active = false;
+
+    // The server's tick rate, from the JOIN reply
+    public synchronized void setTickRate(int ticksPerSecond) {
+        maxPending = ticksPerSecond;
+        tickDt = 1.0 / ticksPerSecond;
+    }
+
+    // We just sent 'input' (with its sequence number set)
+    public synchronized void applyInput(InputPacket input) {
+        if (pending.size() >= maxPending) pending.pollFirst();
+        pending.addLast(input);
+        if (active) step(input);
+    }
+
+    // A snapshot arrived, 'me' is our own player in it (null if we are not in the match)
+    public synchronized void reconcile(GameState state, GameState.PlayerState me) {
+        active = me != null && me.isApproved && state.currentPhase == GameState.Phase.PLAYING;
+        if (me == null) return;
+
+        while (!pending.isEmpty() && pending.peekFirst().sequence <= me.lastProcessedInput) pending.pollFirst();
+        x = me.x;
+        y = me.y;
+        if (active) for (InputPacket input : pending) step(input);
+    }
+
+    public synchronized boolean isActive() { return active; }
+    public synchronized double getX() { return x; }
+    public synchronized double getY() { return y; }
+
+    // The server applies each input as one tick of movement
+    private void step(InputPacket input) {
+        PlayerMovement.step(input, x, y, tickDt, moved);
+        x = moved[0];
+        y = moved[1];
+    }
+}
@@ -0,0 +1,174 @@
+package com.soccer.client;
+
+import com.soccer.common.GameState;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Entity interpolation for everything we don't predict (the other players and the ball).
+// Snapshots are kept with the time they arrived, and the screen shows the match a little in the
+// past: between the two snapshots around the render time, blended by how far we are between them.
+// So the picture moves smoothly at the display's frame rate whatever the send rate is, and a late
+// or bunched-up packet only changes how much buffer is left instead of making things jump.
+//
+// Time is counted in server ticks (GameState.sequence). The render clock runs on the local clock,
+// converted with the measured tick length, and is nudged gently towards "newest tick minus the
+// delay" so it follows the server without copying the jitter of every single packet.
+// If the buffer runs dry we extrapolate along the last movement for at most MAX_EXTRAPOLATION,
+// then hold still until the next snapshot arrives.
+//
+// Snapshots are added from the network thread and sampled by the renderer, so it is synchronized.
+public class SnapshotBuffer {
+    private static final int CAPACITY = 32;
+    // Never render closer to the newest snapshot than this, even at a high send rate
+    private static final long MIN_DELAY_NANOS = 50_000_000L;
+    private static final long MAX_EXTRAPOLATION_NANOS = 100_000_000L;
+    // A player or the ball moving further than this between two snapshots was put there
+    // (kick-off, goal), don't draw it sliding across the pitch
+    private static final double TELEPORT_DISTANCE = 120.0;
+
+    private final GameState[] states = new GameState[CAPACITY];
+    private final long[] arrivals = new long[CAPACITY];
+    private int first = 0, count = 0;
+
+    // Measured while snapshots come in: nanos per server tick and ticks between two snapshots
+    private double tickNanos = 1e9 / 60;
+    private double snapshotGap = 1.0;
+
+    // The tick currently on screen (fractional), NaN until the first sample
+    private double renderTick = Double.NaN;
+    private long lastSampleNanos;
+    // The last sample was held still (nothing to blend towards any more) and no snapshot came since,
+    // so the next one would give the same picture
+    private boolean settled = false;
+
+    public synchronized void add(GameState state, long arrivalNanos) {
+        if (count > 0) {
+            GameState newest = newest();
+            int ticks = state.sequence - newest.sequence;
+            if (ticks <= 0) {
+                clear(); // The server started counting again (new room), start over
+            } else {
+                // Only learn from packets that came in roughly on time, not after a long stall
+                long elapsed = arrivalNanos - arrivals[index(count - 1)];
+                if (ticks < 30 && elapsed > 0) {
+                    double perTick = elapsed / (double) ticks;
+                    tickNanos += (Math.max(1e9 / 240, Math.min(1e9 / 10, perTick)) - tickNanos) * 0.02;
+                    snapshotGap += (ticks - snapshotGap) * 0.1;
+                }
+            }
+        }
+        if (count == CAPACITY) {
+            first = (first + 1) % CAPACITY;
+            count--;
+        }
+        states[index(count)] = state;
+        arrivals[index(count)] = arrivalNanos;
+        count++;
+        settled = false;
+    }
+
+    public synchronized void clear() {
+        count = 0;
+        renderTick = Double.NaN;
+        settled = false;
+    }
+
+    // True if sample() would return the same positions as last time, so the renderer can skip
+    // the frame without sampling (and allocating) at all
+    public synchronized boolean isSettled() {
+        return settled;
+    }
+
+    // The state to draw at local time 'nowNanos', or null if nothing has arrived yet.
+    // Returns a new GameState, the buffered snapshots are never changed.
+    public synchronized GameState sample(long nowNanos) {
+        if (count == 0) return null;
+        GameState newest = newest();
+
+        // Two snapshot gaps keep the next snapshot in hand even if one is lost
+        double delayTicks = Math.max(MIN_DELAY_NANOS / tickNanos, 2 * snapshotGap);
+        double target = newest.sequence + (nowNanos - arrivals[index(count - 1)]) / tickNanos - delayTicks;
+
+        if (Double.isNaN(renderTick) || Math.abs(target - renderTick) > 2 * delayTicks + 10) {
+            renderTick = target; // First frame, or we were away for long: jump instead of catching up
+        } else {
+            double advanced = renderTick + (nowNanos - lastSampleNanos) / tickNanos;
+            // Small corrections only, and never backwards
+            renderTick = Math.max(renderTick, advanced + (target - advanced) * 0.05);
+        }
+        lastSampleNanos = nowNanos;
+        settled = false;
+
+        GameState oldest = states[index(0)];
+        if (renderTick <= oldest.sequence) return oldest.copy();
+
+        // Interpolate between the snapshots on both sides of the render time
+        for (int i = count - 1; i > 0; i--) {
+            GameState from = states[index(i - 1)];
+            GameState to = states[index(i)];
+            if (from.sequence <= renderTick && renderTick < to.sequence) {
+                double t = (renderTick - from.sequence) / (to.sequence - from.sequence);
+                return blend(from, to, t, from);
+            }
+        }
+
+        // Past the newest snapshot: keep going the way things were moving, for a short while
+        if (count < 2) {
+            settled = true;
+            return newest.copy();
+        }
+        GameState previous = states[index(count - 2)];
+        double maxAhead = MAX_EXTRAPOLATION_NANOS / tickNanos;
+        double aheadTicks = Math.min(renderTick - newest.sequence, maxAhead);
+        settled = aheadTicks == maxAhead; // Held still from here on
+        double t = 1.0 + aheadTicks / (newest.sequence - previous.sequence);
+        return blend(previous, newest, t, newest);
+    }
+
+    // Positions at 't' between 'from' (0) and 'to' (1), everything else taken from 'base'
+    private static GameState blend(GameState from, GameState to, double t, GameState base) {
+        GameState out = new GameState();
+        out.sequence = base.sequence;
+        out.currentPhase = base.currentPhase;
+        out.countdownValue = base.countdownValue;
+        out.scoreRed = base.scoreRed; out.scoreBlue = base.scoreBlue;
+        out.timeString = base.timeString;
+        out.winner = base.winner;
+        out.weather = base.weather;
+
+        out.ballX = base.ballX; out.ballY = base.ballY;
+        if (Math.hypot(to.ballX - from.ballX, to.ballY - from.ballY) < TELEPORT_DISTANCE) {
+            out.ballX = from.ballX + (to.ballX - from.ballX) * t;
+            out.ballY = from.ballY + (to.ballY - from.ballY) * t;
+        }
+
+        List<GameState.PlayerState> players = new ArrayList<>(base.players.size());
+        for (int i = 0; i < base.players.size(); i++) {
+            GameState.PlayerState p = base.players.get(i);
+            GameState.PlayerState a = find(from, p.id, i), b = find(to, p.id, i);
+            GameState.PlayerState c = p.copy();
+            if (a != null && b != null && Math.hypot(b.x - a.x, b.y - a.y) < TELEPORT_DISTANCE) {
+                c.x = a.x + (b.x - a.x) * t;
+                c.y = a.y + (b.y - a.y) * t;
+            }
+            players.add(c);
+        }
+        out.players = players;
+        return out;
+    }
+
+    // The roster rarely changes, so the same index is almost always the same player
+    private static GameState.PlayerState find(GameState state, int id, int hint) {
+        List<GameState.PlayerState> players = state.players;
+        if (hint < players.size() && players.get(hint).id == id) return players.get(hint);
+        for (GameState.PlayerState p : players) {
+            if (p.id == id) return p;
+        }
+        return null;
+    }
+
+    private GameState newest() { return states[index(count - 1)]; }
+
+    private int index(int i) { return (first + i) % CAPACITY; }
+}
@@ -0,0 +1,53 @@
+package com.soccer.client.ui;
+
+// Frame-time statistics for the game screen: how many frames were drawn, how long drawing them
+// took, and how many pulses were skipped (frame cap, or the picture would not have changed).
+// The numbers are per reporting window (REPORT_NANOS), the totals since the screen opened.
+// -Dsoccer.frameStats=true prints each window to the console.
+// Only used from the FX thread.
+public class FrameStats {
+    private static final boolean PRINT = Boolean.getBoolean("soccer.frameStats");
+    private static final long REPORT_NANOS = 5_000_000_000L;
+
+    // Last finished window
+    public double fps, avgDrawMs, maxDrawMs;
+    public long skipped;
+    // Since the start
+    public long totalFrames, totalSkipped;
+
+    private long windowStart = -1;
+    private long frames, windowSkipped, drawNanos, maxDrawNanos;
+
+    // A frame was drawn at 'now' and drawing it took 'nanos'
+    public void drawn(long now, long nanos) {
+        frames++;
+        totalFrames++;
+        drawNanos += nanos;
+        maxDrawNanos = Math.max(maxDrawNanos, nanos);
+        roll(now);
+    }
+
+    // A pulse came but no frame was drawn for it
+    public void skipped(long now) {
+        windowSkipped++;
+        totalSkipped++;
+        roll(now);
+    }
+
+    private void roll(long now) {
+        if (windowStart < 0) windowStart = now;
+        long elapsed = now - windowStart;
+        if (elapsed < REPORT_NANOS) return;
+
+        fps = frames * 1e9 / elapsed;
+        avgDrawMs = frames > 0 ? drawNanos / 1e6 / frames : 0;
+        maxDrawMs = maxDrawNanos / 1e6;
+        skipped = windowSkipped;
+        if (PRINT) {
+            System.out.printf("[Frames] %.1f fps, draw avg %.2f ms / max %.2f ms, %d pulses skipped%n",
+                    fps, avgDrawMs, maxDrawMs, skipped);
+        }
+        windowStart = now;
+        frames = windowSkipped = drawNanos = maxDrawNanos = 0;
+    }
+}
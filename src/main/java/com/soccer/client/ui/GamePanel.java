@@ -2,10 +2,13 @@ package com.soccer.client.ui;
 
 import com.soccer.common.Constants;
 import com.soccer.common.GameState;
+import javafx.scene.SnapshotParameters;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.image.Image;
 import javafx.scene.paint.Color;
+import javafx.scene.transform.Transform;
+import javafx.stage.Screen;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.scene.text.TextAlignment;
@@ -15,6 +18,8 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
 
 // This class handles all the drawing. It's basically the screen renderer.
 public class GamePanel extends Canvas {
@@ -30,11 +35,77 @@ public class GamePanel extends Canvas {
     private Image imgFootRed;
     private Image imgFootBlue;
 
+    // Sprite atlas: every player pre-drawn (shadow, feet, hands, body) once per team and leg-swing
+    // phase, so a player is a single drawImage from one texture instead of six calls.
+    // Row 0 is red, row 1 blue; column k has the legs at sin(2*PI*k/SWING_PHASES) * 6.
+    private static final int SWING_PHASES = 16;
+    private static final double CELL_SIZE = 64;
+    // Where the player's position is inside a cell (the shadow reaches further right/down)
+    private static final double CELL_ANCHOR_X = 26, CELL_ANCHOR_Y = 23;
+    private Image playerAtlas;
+
+    // Fonts are made once, Font.font() looks the family up on every call
+    private static final Font FONT_NAME = Font.font("Arial", FontWeight.BOLD, 10);
+    private static final Font FONT_SCORE = Font.font("Arial", FontWeight.BOLD, 30);
+    private static final Font FONT_TIME = Font.font("Monospaced", FontWeight.BOLD, 20);
+    private static final Font FONT_WEATHER = Font.font("Arial", 16);
+    private static final Font FONT_COUNTDOWN = Font.font("Arial", FontWeight.BOLD, 80);
+    private static final Font FONT_BUTTON = Font.font("Arial", FontWeight.BOLD, 16);
+    private static final Font FONT_WAITING = Font.font("Arial", FontWeight.BOLD, 40);
+    private static final Font FONT_WAITING_HINT = Font.font("Arial", 20);
+    private static final Font FONT_RESULT_TITLE = Font.font("Arial Black", FontWeight.BOLD, 48);
+    private static final Font FONT_RESULT_WINNER = Font.font("Arial", FontWeight.BOLD, 36);
+    private static final Font FONT_RESULT_SCORE = Font.font("Monospaced", FontWeight.BOLD, 42);
+    private static final Font FONT_RESULT_HEADER = Font.font("Arial", FontWeight.BOLD, 18);
+    private static final Font FONT_RESULT_SCORER = Font.font("Arial", 16);
+    private static final Font FONT_RESULT_NONE = Font.font("Arial", 14);
+    private static final Font FONT_RESULT_FOOTER = Font.font("Arial", 10);
+
+    // Name tags, drawn once per player into an image and only redrawn if the name changes.
+    // Wider than the box so long names can stick out of it like they always did.
+    private static final double TAG_W = 120, TAG_H = 18;
+    private final Map<Integer, Nameplate> nameplates = new HashMap<>();
+
+    private static class Nameplate {
+        final String name;
+        final Image image;
+        Nameplate(String name, Image image) { this.name = name; this.image = image; }
+    }
+
+    // The score box (160 x 80) with the score in it as one image, only redrawn when the score
+    // changes. The clock and weather text go into a second, transparent image over the top
+    // 100 px of the HUD, redrawn when the time text or the weather changes, never every frame.
+    private static final double SCORE_BOX_W = 160, SCORE_BOX_H = 80;
+    private Image scoreBoxImage;
+    private int boxScoreRed, boxScoreBlue;
+    private static final double HUD_TEXT_H = 100;
+    private Image hudTextImage;
+    private String hudTime, hudWeather;
+
+    // Screen pixels per canvas unit, cached images are made at this scale so they stay sharp
+    private double pixelScale = 1;
+
     // Animation State
     // Keep track of where players were last frame to calculate movement for animation
     private Map<Integer, Double> lastX = new HashMap<>();
     private Map<Integer, Double> lastY = new HashMap<>();
-    private long frameCounter = 0;
+    // Leg swing speed in radians per second (used to be 0.2 per frame at 60 fps), by time so a
+    // frame cap or skipped frames don't slow the animation down
+    private static final double SWING_SPEED = 12.0;
+
+    // Dirty tracking: what the last drawn frame showed. render() skips a frame that would look
+    // exactly the same, so a settled or waiting screen costs (almost) nothing.
+    private GameState lastDrawn;
+    private boolean lastWasWaiting, lastHadLocalPosition;
+    private double lastLocalX, lastLocalY;
+
+    // Counts drawn and skipped frames (see FrameStats)
+    public final FrameStats frameStats = new FrameStats();
+
+    // The pitch never changes, so each palette is drawn once into an image (see pitchImage)
+    // and every frame only copies it, instead of filling the canvas and stroking all the lines
+    private Image pitchSunny;
+    private Image pitchRainy;
 
     // Button Coordinates (End Game Button)
     // Hardcoded position for the top-right button
@@ -49,12 +120,19 @@ public class GamePanel extends Canvas {
     // Store my own ID so I know if I am approved or not
     private int myClientId;
 
+    // Where ClientMain predicts my own player is (see LocalPrediction). Used instead of the
+    // snapshot's position for me, so my player moves the moment I press a key.
+    private boolean hasLocalPosition = false;
+    private double localX, localY;
+
     // Constructor: Now takes ID to identify 'myself'
     public GamePanel(int clientId) {
         super(Constants.WIDTH, Constants.HEIGHT);
         this.myClientId = clientId; // Save ID
         this.gc = this.getGraphicsContext2D();
+        this.pixelScale = Screen.getPrimary().getOutputScaleX();
         loadImages();
+        buildPlayerAtlas();
 
         // Mouse Click Detection
         this.setOnMouseClicked(event -> {
@@ -88,41 +166,56 @@ public class GamePanel extends Canvas {
         }
     }
 
-    // Main drawing loop, called 60 times a second
-    public void render(GameState currentState) {
-        if (currentState == null) return; // Safety check
+    public void setLocalPlayerPosition(double x, double y) {
+        hasLocalPosition = true;
+        localX = x;
+        localY = y;
+    }
+
+    public void clearLocalPlayerPosition() {
+        hasLocalPosition = false;
+    }
+
+    // Main drawing loop, called up to 60 times a second.
+    // Returns false if nothing changed since the last frame and drawing was skipped.
+    public boolean render(GameState currentState) {
+        if (currentState == null) return false; // Safety check
 
         // CHECK ADMIN APPROVAL
-        // Need to find my own player object in the list
-        GameState.PlayerState myPlayer = null;
-        for (GameState.PlayerState p : currentState.players) {
-            if (p.id == myClientId) {
-                myPlayer = p;
-                break;
-            }
+        boolean waiting = wouldShowWaitingScreen(currentState);
+        long start = System.nanoTime();
+        if (!needsRedraw(currentState, waiting)) {
+            frameStats.skipped(start);
+            return false;
         }
 
         // If I exist but Admin hasn't approved me, show the black screen
-        if (myPlayer != null && !myPlayer.isApproved) {
+        if (waiting) {
             drawWaitingScreen();
-            return; // Don't draw the field, just stop here
+            frameStats.drawn(start, System.nanoTime() - start);
+            return true; // Don't draw the field, just stop here
         }
 
         // IF APPROVED, DRAW NORMAL GAME
-        frameCounter++;
 
         // 1. Draw Pitch (Background)
         // darker green if it's raining
         if ("RAINY".equals(currentState.weather)) {
-            drawPitch(Color.web("#1e5128"), Color.web("#143d1d"));
+            if (pitchRainy == null) pitchRainy = pitchImage(Color.web("#1e5128"), Color.web("#143d1d"));
+            gc.drawImage(pitchRainy, 0, 0, Constants.WIDTH, Constants.HEIGHT);
         } else {
-            drawPitch(Color.web("#2ecc71"), Color.web("#27ae60"));
+            if (pitchSunny == null) pitchSunny = pitchImage(Color.web("#2ecc71"), Color.web("#27ae60"));
+            gc.drawImage(pitchSunny, 0, 0, Constants.WIDTH, Constants.HEIGHT);
         }
 
         // 2. Draw Players
         for (GameState.PlayerState p : currentState.players) {
             drawModularPlayer(p); // complex drawing with hands/feet
         }
+        // Forget the name tags of players who left
+        if (nameplates.size() > currentState.players.size()) {
+            nameplates.keySet().removeIf(id -> currentState.players.stream().noneMatch(p -> p.id == id));
+        }
 
         // 3. Draw Ball
         drawBallSprite(currentState.ballX, currentState.ballY);
@@ -142,6 +235,66 @@ public class GamePanel extends Canvas {
         if (currentState.currentPhase == GameState.Phase.GAME_OVER) {
             drawGameOverScreen(currentState);
         }
+        frameStats.drawn(start, System.nanoTime() - start);
+        return true;
+    }
+
+    // The last frame has something moving on its own (the rain), so it must be drawn again
+    // even if no new state came in
+    public boolean isAnimating() {
+        return lastDrawn != null && !lastWasWaiting && "RAINY".equals(lastDrawn.weather)
+                && lastDrawn.currentPhase != GameState.Phase.GAME_OVER;
+    }
+
+    // The last frame was the waiting-for-approval screen, which stays the same until we are approved
+    public boolean isShowingWaitingScreen() {
+        return lastDrawn != null && lastWasWaiting;
+    }
+
+    // Whether 'state' would show the waiting screen (I am in the match but not approved yet)
+    public boolean wouldShowWaitingScreen(GameState state) {
+        for (GameState.PlayerState p : state.players) {
+            if (p.id == myClientId) return !p.isApproved;
+        }
+        return false;
+    }
+
+    // Whether drawing 'state' would give a different picture than the last frame
+    private boolean needsRedraw(GameState state, boolean waiting) {
+        GameState last = lastDrawn;
+        boolean wasWaiting = lastWasWaiting;
+        boolean localMoved = hasLocalPosition != lastHadLocalPosition || localX != lastLocalX || localY != lastLocalY;
+        lastDrawn = state;
+        lastWasWaiting = waiting;
+        lastHadLocalPosition = hasLocalPosition;
+        lastLocalX = localX;
+        lastLocalY = localY;
+
+        if (last == null || waiting != wasWaiting) return true;
+        if (waiting) return false; // The waiting screen never changes
+        // The rain moves every frame (it is hidden behind the result screen)
+        if ("RAINY".equals(state.weather) && state.currentPhase != GameState.Phase.GAME_OVER) return true;
+        return localMoved || !looksSame(last, state);
+    }
+
+    // Compares everything render() shows
+    private static boolean looksSame(GameState a, GameState b) {
+        if (a == b) return true;
+        if (a.currentPhase != b.currentPhase || a.countdownValue != b.countdownValue
+                || a.scoreRed != b.scoreRed || a.scoreBlue != b.scoreBlue
+                || a.ballX != b.ballX || a.ballY != b.ballY
+                || !Objects.equals(a.timeString, b.timeString) || !Objects.equals(a.weather, b.weather)
+                || !Objects.equals(a.winner, b.winner) || a.players.size() != b.players.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.players.size(); i++) {
+            GameState.PlayerState p = a.players.get(i), q = b.players.get(i);
+            if (p.id != q.id || p.x != q.x || p.y != q.y || p.stamina != q.stamina || p.goals != q.goals
+                    || p.isApproved != q.isApproved || !Objects.equals(p.name, q.name) || !Objects.equals(p.team, q.team)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     // Just a black background with white text
@@ -153,11 +306,11 @@ public class GamePanel extends Canvas {
         gc.setTextAlign(TextAlignment.CENTER);
 
         // Main Message
-        gc.setFont(Font.font("Arial", FontWeight.BOLD, 40));
+        gc.setFont(FONT_WAITING);
         gc.fillText("WAITING FOR ADMIN APPROVAL...", Constants.WIDTH / 2.0, Constants.HEIGHT / 2.0 - 50);
 
         // Instructions for the user
-        gc.setFont(Font.font("Arial", 20));
+        gc.setFont(FONT_WAITING_HINT);
         gc.setFill(Color.LIGHTGRAY);
         gc.fillText("(Admin: Press 'P' to approve players)", Constants.WIDTH / 2.0, Constants.HEIGHT / 2.0 + 20);
     }
@@ -175,7 +328,7 @@ public class GamePanel extends Canvas {
 
         // Text
         gc.setFill(Color.WHITE);
-        gc.setFont(Font.font("Arial", FontWeight.BOLD, 16));
+        gc.setFont(FONT_BUTTON);
         gc.setTextAlign(TextAlignment.CENTER);
         gc.fillText("END GAME", BTN_X + BTN_W / 2, BTN_Y + 26);
     }
@@ -211,7 +364,7 @@ public class GamePanel extends Canvas {
         // Title
         gc.setTextAlign(TextAlignment.CENTER);
         gc.setFill(Color.GOLD);
-        gc.setFont(Font.font("Arial Black", FontWeight.BOLD, 48));
+        gc.setFont(FONT_RESULT_TITLE);
         gc.fillText("MATCH RESULT", w / 2, panelY + 70);
 
         // Logic to decide who won
@@ -231,7 +384,7 @@ public class GamePanel extends Canvas {
 
         // Draw winner text
         gc.setFill(winnerColor);
-        gc.setFont(Font.font("Arial", FontWeight.BOLD, 36));
+        gc.setFont(FONT_RESULT_WINNER);
         gc.setStroke(Color.BLACK);
         gc.setLineWidth(1);
         gc.strokeText(winnerText, w / 2, panelY + 130);
@@ -247,11 +400,11 @@ public class GamePanel extends Canvas {
         gc.fillRoundRect(scoreBoxX, scoreBoxY, scoreBoxW, scoreBoxH, 20, 20);
 
         gc.setFill(Color.WHITE);
-        gc.setFont(Font.font("Monospaced", FontWeight.BOLD, 42));
+        gc.setFont(FONT_RESULT_SCORE);
         gc.fillText(state.scoreRed + " - " + state.scoreBlue, w / 2, scoreBoxY + 45);
 
         // Top Scorers Section
-        gc.setFont(Font.font("Arial", FontWeight.BOLD, 18));
+        gc.setFont(FONT_RESULT_HEADER);
         gc.setFill(Color.YELLOW);
         gc.fillText("★ TOP SCORERS ★", w / 2, panelY + 250);
 
@@ -272,7 +425,7 @@ public class GamePanel extends Canvas {
                 if (count >= 3) break; // Only show top 3
 
                 gc.setFill(p.team.equals("RED") ? Color.PINK : Color.LIGHTBLUE);
-                gc.setFont(Font.font("Arial", 16));
+                gc.setFont(FONT_RESULT_SCORER);
                 gc.fillText(p.name + "   :   " + p.goals + " Goals", w / 2, yOffset);
                 yOffset += 25;
                 count++;
@@ -281,89 +434,134 @@ public class GamePanel extends Canvas {
 
         if (!hasScorer) {
             gc.setFill(Color.GRAY);
-            gc.setFont(Font.font("Arial", 14));
+            gc.setFont(FONT_RESULT_NONE);
             gc.fillText("(No goals scored)", w / 2, yOffset);
         }
 
         // Footer hint
         gc.setFill(Color.rgb(255, 255, 255, 0.4));
-        gc.setFont(Font.font("Arial", 10));
+        gc.setFont(FONT_RESULT_FOOTER);
         gc.fillText("Re-run application to start a new match", w / 2, panelY + panelH - 15);
     }
 
     // DRAW PLAYER LOGIC
-    // Draws hands, feet, and body separately for animation
+    // Hands, feet and body come pre-composited from the atlas, only the leg-swing phase changes
     private void drawModularPlayer(GameState.PlayerState p) {
-        double r = Constants.PLAYER_RADIUS;
-        double bodySize = r * 2.8;
-        double handSize = bodySize * 0.35;
-        double footSize = bodySize * 0.40;
+        // My own player is drawn at the predicted position
+        double x = p.x, y = p.y;
+        if (p.id == myClientId && hasLocalPosition) { x = localX; y = localY; }
 
         // Check if player moved since last frame
         boolean isMoving = false;
         if (lastX.containsKey(p.id)) {
-            if (Math.abs(p.x - lastX.get(p.id)) > 0.1 || Math.abs(p.y - lastY.get(p.id)) > 0.1) {
+            if (Math.abs(x - lastX.get(p.id)) > 0.1 || Math.abs(y - lastY.get(p.id)) > 0.1) {
                 isMoving = true;
             }
         }
         // Update history
-        lastX.put(p.id, p.x);
-        lastY.put(p.id, p.y);
+        lastX.put(p.id, x);
+        lastY.put(p.id, y);
+
+        // Simple sine wave for leg swinging effect, rounded to the nearest pre-drawn phase
+        // (phase 0 is standing still)
+        int phase = 0;
+        if (isMoving) {
+            double turns = System.nanoTime() / 1e9 * SWING_SPEED / (2 * Math.PI);
+            phase = (int) Math.floorMod(Math.round(turns * SWING_PHASES), (long) SWING_PHASES);
+        }
+        int row = p.team.equals("RED") ? 0 : 1;
+
+        double s = pixelScale;
+        gc.drawImage(playerAtlas, phase * CELL_SIZE * s, row * CELL_SIZE * s, CELL_SIZE * s, CELL_SIZE * s,
+                x - CELL_ANCHOR_X, y - CELL_ANCHOR_Y, CELL_SIZE, CELL_SIZE);
+        drawPlayerOverlays(p, x, y);
+    }
+
+    // Draws both teams in every swing phase into one image. Runs once, on the FX thread.
+    // If the PNGs didn't load the parts that are missing are left out, and without a body image
+    // the player is a plain team-colored circle, so drawing never needs a second path.
+    private void buildPlayerAtlas() {
+        playerAtlas = renderToImage(CELL_SIZE * SWING_PHASES, CELL_SIZE * 2, g -> {
+            for (int row = 0; row < 2; row++) {
+                boolean isRed = row == 0;
+                for (int phase = 0; phase < SWING_PHASES; phase++) {
+                    double swingOffset = Math.sin(2 * Math.PI * phase / SWING_PHASES) * 6;
+                    drawPlayerParts(g, isRed, phase * CELL_SIZE + CELL_ANCHOR_X, row * CELL_SIZE + CELL_ANCHOR_Y, swingOffset);
+                }
+            }
+        });
+    }
 
-        // Simple sine wave for leg swinging effect
-        double swingOffset = isMoving ? Math.sin(frameCounter * 0.2) * 6 : 0;
+    // One player centered on (x, y), the way drawModularPlayer used to draw it every frame
+    private void drawPlayerParts(GraphicsContext g, boolean isRed, double x, double y, double swingOffset) {
+        double r = Constants.PLAYER_RADIUS;
+        double bodySize = r * 2.8;
+        double handSize = bodySize * 0.35;
+        double footSize = bodySize * 0.40;
 
-        boolean isRed = p.team.equals("RED");
         Image bodyImg = isRed ? imgPlayerRed : imgPlayerBlue;
         Image handImg = isRed ? imgHandRed : imgHandBlue;
         Image footImg = isRed ? imgFootRed : imgFootBlue;
 
         // Shadow
-        gc.setFill(Color.rgb(0, 0, 0, 0.3));
-        gc.fillOval(p.x + 2, p.y + 5, r * 2.2, r * 2.2);
+        g.setFill(Color.rgb(0, 0, 0, 0.3));
+        g.fillOval(x + 2, y + 5, r * 2.2, r * 2.2);
 
         // Feet (with animation offset)
-        if (footImg != null) {
-            drawPart(footImg, p.x - bodySize * 0.25, p.y + bodySize * 0.25 + swingOffset, footSize);
-            drawPart(footImg, p.x + bodySize * 0.25, p.y + bodySize * 0.25 - swingOffset, footSize);
+        if (isLoaded(footImg)) {
+            drawPart(g, footImg, x - bodySize * 0.25, y + bodySize * 0.25 + swingOffset, footSize);
+            drawPart(g, footImg, x + bodySize * 0.25, y + bodySize * 0.25 - swingOffset, footSize);
         }
         // Hands
-        if (handImg != null) {
-            drawPart(handImg, p.x - bodySize * 0.4, p.y, handSize);
-            drawPart(handImg, p.x + bodySize * 0.4, p.y, handSize);
+        if (isLoaded(handImg)) {
+            drawPart(g, handImg, x - bodySize * 0.4, y, handSize);
+            drawPart(g, handImg, x + bodySize * 0.4, y, handSize);
         }
         // Body
-        if (bodyImg != null) {
-            drawPart(bodyImg, p.x, p.y, bodySize);
+        if (isLoaded(bodyImg)) {
+            drawPart(g, bodyImg, x, y, bodySize);
         } else {
             // Fallback to simple circle if image fails
-            gc.setFill(isRed ? Color.RED : Color.BLUE);
-            gc.fillOval(p.x, p.y, r*2, r*2);
+            g.setFill(isRed ? Color.RED : Color.BLUE);
+            g.fillOval(x - r, y - r, r*2, r*2);
         }
-        drawPlayerOverlays(p);
     }
 
-    private void drawPart(Image img, double cx, double cy, double size) {
-        gc.drawImage(img, cx - size / 2, cy - size / 2, size, size);
+    private static boolean isLoaded(Image img) {
+        return img != null && !img.isError();
     }
 
-    // Draws name tag and stamina bar
-    private void drawPlayerOverlays(GameState.PlayerState p) {
-        // Name background box
-        gc.setFill(Color.rgb(0, 0, 0, 0.5));
-        gc.fillRoundRect(p.x - 25, p.y - 35, 50, 18, 10, 10);
+    private static void drawPart(GraphicsContext g, Image img, double cx, double cy, double size) {
+        g.drawImage(img, cx - size / 2, cy - size / 2, size, size);
+    }
 
-        // Name text
-        gc.setFill(Color.WHITE);
-        gc.setFont(Font.font("Arial", FontWeight.BOLD, 10));
-        gc.setTextAlign(TextAlignment.CENTER);
-        gc.fillText(p.name, p.x, p.y - 22);
+    // Draws name tag and stamina bar
+    private void drawPlayerOverlays(GameState.PlayerState p, double x, double y) {
+        Nameplate tag = nameplates.get(p.id);
+        if (tag == null || !Objects.equals(tag.name, p.name)) {
+            tag = new Nameplate(p.name, renderToImage(TAG_W, TAG_H, g -> drawNameTag(g, p.name)));
+            nameplates.put(p.id, tag);
+        }
+        gc.drawImage(tag.image, x - TAG_W / 2, y - 35, TAG_W, TAG_H);
 
         // Stamina bar
         gc.setFill(Color.BLACK);
-        gc.fillRect(p.x - 15, p.y + 20, 30, 4);
+        gc.fillRect(x - 15, y + 20, 30, 4);
         gc.setFill(p.stamina < 30 ? Color.RED : Color.LIGHTGREEN);
-        gc.fillRect(p.x - 14, p.y + 21, 28 * (p.stamina / 100.0), 2);
+        gc.fillRect(x - 14, y + 21, 28 * (p.stamina / 100.0), 2);
+    }
+
+    // Name box and text, centered in a TAG_W x TAG_H image
+    private static void drawNameTag(GraphicsContext g, String name) {
+        // Name background box
+        g.setFill(Color.rgb(0, 0, 0, 0.5));
+        g.fillRoundRect(TAG_W / 2 - 25, 0, 50, 18, 10, 10);
+
+        // Name text
+        g.setFill(Color.WHITE);
+        g.setFont(FONT_NAME);
+        g.setTextAlign(TextAlignment.CENTER);
+        if (name != null) g.fillText(name, TAG_W / 2, 13);
     }
 
     // Draws the ball
@@ -378,8 +576,25 @@ public class GamePanel extends Canvas {
         }
     }
 
+    private Image pitchImage(Color lightGrass, Color darkGrass) {
+        return renderToImage(Constants.WIDTH, Constants.HEIGHT, g -> drawPitch(g, lightGrass, darkGrass));
+    }
+
+    // Runs 'painter' on an off-screen canvas of w x h and returns the result as an image
+    // (transparent where nothing was drawn), at the screen's pixel scale so it stays sharp.
+    // Must run on the FX thread, like render itself.
+    private Image renderToImage(double w, double h, Consumer<GraphicsContext> painter) {
+        Canvas layer = new Canvas(w, h);
+        painter.accept(layer.getGraphicsContext2D());
+
+        SnapshotParameters params = new SnapshotParameters();
+        params.setFill(Color.TRANSPARENT);
+        params.setTransform(Transform.scale(pixelScale, pixelScale));
+        return layer.snapshot(params, null);
+    }
+
     // Draw the green field and lines
-    private void drawPitch(Color lightGrass, Color darkGrass) {
+    private static void drawPitch(GraphicsContext gc, Color lightGrass, Color darkGrass) {
         gc.setFill(lightGrass);
         gc.fillRect(0, 0, Constants.WIDTH, Constants.HEIGHT);
         gc.setFill(darkGrass);
@@ -403,33 +618,27 @@ public class GamePanel extends Canvas {
 
     // Draws Score, Time, and Weather info
     private void drawHUD(GameState state) {
-        // Background for score
-        gc.setFill(Color.rgb(0, 0, 0, 0.5));
-        gc.fillRoundRect(Constants.WIDTH/2.0 - 80, 10, 160, 80, 20, 20);
-
-        // Score
-        gc.setFill(Color.WHITE);
-        gc.setFont(Font.font("Arial", FontWeight.BOLD, 30));
-        gc.setTextAlign(TextAlignment.CENTER);
-        gc.fillText(state.scoreRed + " - " + state.scoreBlue, Constants.WIDTH/2.0, 50);
-
-        // Timer
-        gc.setFont(Font.font("Monospaced", FontWeight.BOLD, 20));
-        gc.setFill(Color.YELLOW);
-        gc.fillText(state.timeString, Constants.WIDTH/2.0, 80);
+        if (scoreBoxImage == null || state.scoreRed != boxScoreRed || state.scoreBlue != boxScoreBlue) {
+            boxScoreRed = state.scoreRed;
+            boxScoreBlue = state.scoreBlue;
+            scoreBoxImage = renderToImage(SCORE_BOX_W, SCORE_BOX_H, g -> drawScoreBox(g, state));
+        }
+        gc.drawImage(scoreBoxImage, Constants.WIDTH/2.0 - SCORE_BOX_W/2, 10, SCORE_BOX_W, SCORE_BOX_H);
 
-        // Weather text top left
-        gc.setFont(Font.font("Arial", 16));
-        gc.setFill(Color.WHITE);
-        gc.setTextAlign(TextAlignment.LEFT);
-        gc.fillText("Weather: " + state.weather, 20, 40);
+        // Fix: the clock and weather text are cached too, keyed on the time text and the weather
+        if (hudTextImage == null || !Objects.equals(state.timeString, hudTime) || !Objects.equals(state.weather, hudWeather)) {
+            hudTime = state.timeString;
+            hudWeather = state.weather;
+            hudTextImage = renderToImage(Constants.WIDTH, HUD_TEXT_H, g -> drawHudText(g, state));
+        }
+        gc.drawImage(hudTextImage, 0, 0, Constants.WIDTH, HUD_TEXT_H);
 
         // Big countdown text if game starting
         if (state.currentPhase == GameState.Phase.COUNTDOWN) {
             gc.setFill(Color.YELLOW);
             gc.setStroke(Color.BLACK);
             gc.setLineWidth(3);
-            gc.setFont(Font.font("Arial", FontWeight.BOLD, 80));
+            gc.setFont(FONT_COUNTDOWN);
             gc.setTextAlign(TextAlignment.CENTER);
             String text = (state.countdownValue <= 0) ? "GO!" : String.valueOf(state.countdownValue);
             gc.fillText(text, Constants.WIDTH/2.0, Constants.HEIGHT/2.0);
@@ -437,6 +646,34 @@ public class GamePanel extends Canvas {
         }
     }
 
+    // Score box background and score (the part of the HUD that drawHUD caches), in box coordinates
+    private static void drawScoreBox(GraphicsContext g, GameState state) {
+        // Background for score
+        g.setFill(Color.rgb(0, 0, 0, 0.5));
+        g.fillRoundRect(0, 0, SCORE_BOX_W, SCORE_BOX_H, 20, 20);
+
+        // Score
+        g.setFill(Color.WHITE);
+        g.setFont(FONT_SCORE);
+        g.setTextAlign(TextAlignment.CENTER);
+        g.fillText(state.scoreRed + " - " + state.scoreBlue, SCORE_BOX_W/2, 40);
+    }
+
+    // Clock and weather text (the other part of the HUD that drawHUD caches), in canvas coordinates
+    private static void drawHudText(GraphicsContext g, GameState state) {
+        // Timer
+        g.setFont(FONT_TIME);
+        g.setFill(Color.YELLOW);
+        g.setTextAlign(TextAlignment.CENTER);
+        g.fillText(state.timeString, Constants.WIDTH/2.0, 80);
+
+        // Weather text top left
+        g.setFont(FONT_WEATHER);
+        g.setFill(Color.WHITE);
+        g.setTextAlign(TextAlignment.LEFT);
+        g.fillText("Weather: " + state.weather, 20, 40);
+    }
+
     // Simple rain effect
     private void drawRain() {
         gc.setStroke(Color.rgb(200, 200, 255, 0.4));
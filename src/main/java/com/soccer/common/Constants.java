@@ -3,6 +3,14 @@ package com.soccer.common;
 public class Constants {
     // Network config
     public static final int PORT = 8888;
+    // Optional UDP channel for snapshots and inputs (control messages stay on TCP)
+    public static final int UDP_PORT = PORT + 1;
+    // Keep datagrams below a typical MTU; bigger frames go over TCP instead
+    public static final int MAX_DATAGRAM = 1200;
+    // How often a client sends its keys, on a fixed timer: once per server tick, so each input
+    // stands for one tick of movement (see LocalPrediction). This is the server's default tick
+    // rate; the JOIN reply tells the client the real one (-Dsoccer.tickRate).
+    public static final int INPUT_RATE = 60;
 
     // Window dimensions
     public static final int WIDTH = 1200;
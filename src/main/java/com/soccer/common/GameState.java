@@ -10,6 +10,18 @@ public class GameState implements Serializable {
 
     public enum Phase { WAITING, COUNTDOWN, PLAYING, GAME_OVER }
 
+    // Teams are still stored as "RED"/"BLUE" strings on PlayerState,
+    // this enum is what goes over the network (see WireCodec)
+    public enum Team {
+        RED, BLUE;
+
+        public static Team of(String name) { return "BLUE".equals(name) ? BLUE : RED; }
+    }
+
+    // Server tick the snapshot was taken at, used as the delta baseline id.
+    // Always increases, but can skip numbers (ticks the broadcaster didn't send).
+    public int sequence = 0;
+
     public Phase currentPhase = Phase.WAITING;
     public int countdownValue = 3;
 
@@ -22,6 +34,25 @@ public class GameState implements Serializable {
     // 2. CONCURRENCY: Use CopyOnWriteArrayList to handle redundant users/concurrent access safely
     public List<PlayerState> players = new CopyOnWriteArrayList<>();
 
+    // Deep copy, so a snapshot can be kept around while the original keeps changing
+    public GameState copy() {
+        GameState c = new GameState();
+        c.sequence = sequence;
+        c.currentPhase = currentPhase;
+        c.countdownValue = countdownValue;
+        c.ballX = ballX; c.ballY = ballY;
+        c.scoreRed = scoreRed; c.scoreBlue = scoreBlue;
+        c.timeString = timeString;
+        c.winner = winner;
+        c.weather = weather;
+
+        PlayerState[] source = players.toArray(new PlayerState[0]);
+        PlayerState[] copies = new PlayerState[source.length];
+        for (int i = 0; i < source.length; i++) copies[i] = source[i].copy();
+        c.players = new CopyOnWriteArrayList<>(copies);
+        return c;
+    }
+
     public static class PlayerState implements Serializable {
         private static final long serialVersionUID = 1L;
 
@@ -38,6 +69,10 @@ public class GameState implements Serializable {
         // 3. ADMIN APPROVAL: Default false for humans
         public boolean isApproved = false;
 
+        // Sequence of the newest input the server has applied for this player (0 = none yet).
+        // The client compares it with what it sent to know which inputs are still in flight.
+        public int lastProcessedInput = 0;
+
         public PlayerState(int id, String name, String team, double x, double y, boolean isBot) {
             this.id = id;
             this.name = name;
@@ -54,5 +89,16 @@ public class GameState implements Serializable {
             // Bots are automatically approved to play; Humans must wait for Admin
             this.isApproved = isBot;
         }
+
+        public PlayerState copy() {
+            PlayerState c = new PlayerState(id, name, team, x, y, isBot);
+            c.stamina = stamina;
+            c.startX = startX; c.startY = startY;
+            c.isGoalKeeper = isGoalKeeper;
+            c.goals = goals;
+            c.isApproved = isApproved;
+            c.lastProcessedInput = lastProcessedInput;
+            return c;
+        }
     }
 }
\ No newline at end of file
@@ -12,4 +12,11 @@ public class InputPacket implements Serializable {
     public int id;
     public int targetIdToApprove;
 
+    // Increases with every input a client sends, so the server can drop old or repeated ones (UDP)
+    public int sequence;
+    // Set on JOIN: the client would like snapshots and inputs over UDP
+    public boolean wantsUdp;
+    // Set on JOIN / ADMIN_LOGIN: which match to enter. null lets the server pick one.
+    public String roomName;
+
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package com.soccer.common;
+
+// How a human player moves for the keys they hold. Shared by the server (GameRoom moves the
+// players with it) and the client (ClientMain predicts its own player with it), so the two
+// can't drift apart: the same keys from the same spot always end up at the same spot.
+public class PlayerMovement {
+    public static final double SPEED = 180.0;           // pixels per second
+    public static final double SPRINT_MULTIPLIER = 1.5;
+
+    // Moves a player at (x, y) for dt seconds with 'input' held.
+    // Writes the new x, y and the velocity (px/s) into out[0..3].
+    public static void step(InputPacket input, double x, double y, double dt, double[] out) {
+        double dx = 0, dy = 0;
+        if (input.up) dy = -1; if (input.down) dy = 1;
+        if (input.left) dx = -1; if (input.right) dx = 1;
+
+        // Normalize diagonal movement
+        if (dx != 0 || dy != 0) {
+            double len = Math.sqrt(dx * dx + dy * dy);
+            dx /= len; dy /= len;
+        }
+
+        // Sprint check
+        double speed = input.sprint ? SPEED * SPRINT_MULTIPLIER : SPEED;
+        double vx = dx * speed, vy = dy * speed;
+
+        // Keep player inside screen
+        out[0] = Math.max(0, Math.min(Constants.WIDTH, x + vx * dt));
+        out[1] = Math.max(0, Math.min(Constants.HEIGHT, y + vy * dt));
+        out[2] = vx;
+        out[3] = vy;
+    }
+}
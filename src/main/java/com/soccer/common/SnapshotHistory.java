@@ -0,0 +1,30 @@
+package com.soccer.common;
+
+import java.util.Arrays;
+
+// Ring buffer of the most recent snapshots, looked up by sequence number.
+// The server uses it to find the baseline a client last acknowledged,
+// the client uses it to find the baseline a delta was built against.
+// Not thread-safe: each side only touches it from its network thread.
+public class SnapshotHistory {
+    private final GameState[] slots;
+
+    public SnapshotHistory(int capacity) {
+        this.slots = new GameState[capacity];
+    }
+
+    public void put(GameState snapshot) {
+        slots[Math.floorMod(snapshot.sequence, slots.length)] = snapshot;
+    }
+
+    // Returns null if the snapshot was never stored or has already been overwritten
+    public GameState get(int sequence) {
+        if (sequence < 0) return null;
+        GameState s = slots[Math.floorMod(sequence, slots.length)];
+        return (s != null && s.sequence == sequence) ? s : null;
+    }
+
+    public void clear() {
+        Arrays.fill(slots, null);
+    }
+}
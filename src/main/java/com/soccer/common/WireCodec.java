@@ -0,0 +1,554 @@
+package com.soccer.common;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Hand-written binary format for everything we send over the network.
+// We used to push whole objects through ObjectOutputStream, which sends class names and
+// field names with every packet. Here every field has a fixed size and a fixed position instead.
+//
+// Frame layout: [int length][byte version][byte type][payload...]
+// The length does not include itself, so a reader can always skip a whole frame.
+//
+// Snapshots carry a sequence number. Once a client has acknowledged one (MSG_ACK),
+// the server only sends what changed since then (MSG_DELTA) instead of the whole state.
+public final class WireCodec {
+    public static final byte VERSION = 5;
+
+    // Message types
+    public static final byte MSG_INPUT = 1;  // client -> server: keys and commands
+    public static final byte MSG_STATE = 2;  // server -> client: full game snapshot
+    public static final byte MSG_REPLY = 3;  // server -> client: handshake answer ("OK" / "FAIL:...")
+    public static final byte MSG_DELTA = 4;  // server -> client: changes since an acknowledged snapshot
+    public static final byte MSG_ACK = 5;    // client -> server: "I have snapshot N"
+    public static final byte MSG_UDP_HELLO = 6; // client -> server over UDP: "this address is player X"
+
+    // Anything bigger than this is a broken or hostile stream
+    public static final int MAX_FRAME = 64 * 1024;
+
+    // Positions are sent as signed shorts in 1/16 pixel steps (range about +-2047 px)
+    private static final double POS_SCALE = 16.0;
+
+    // Header = length(4) + version(1) + type(1)
+    private static final int HEADER_SIZE = 6;
+    // sequence, phase, countdown, scoreRed, scoreBlue, time, weather, winner, ballX, ballY, playerCount
+    private static final int STATE_FIXED_SIZE = 4 + 1 + 1 + 2 + 2 + 2 + 1 + 1 + 2 + 2 + 1;
+    // sequence, baseSequence, headerMask, playerCount
+    private static final int DELTA_FIXED_SIZE = 4 + 4 + 1 + 1;
+    // id, team, flags, x, y, stamina, goals, nameLength
+    private static final int PLAYER_FIXED_SIZE = 4 + 1 + 1 + 2 + 2 + 1 + 2 + 1;
+    // command, flags, id, sequence, targetId, nameLength, roomLength
+    private static final int INPUT_FIXED_SIZE = 1 + 1 + 4 + 4 + 4 + 1 + 1;
+
+    // Player flag bits
+    private static final int FLAG_BOT = 1;
+    private static final int FLAG_APPROVED = 1 << 1;
+    private static final int FLAG_GOALKEEPER = 1 << 2;
+    private static final int FLAG_INPUT_SEQ = 1 << 3; // lastProcessedInput follows (humans only)
+
+    // Input flag bits
+    private static final int KEY_UP = 1;
+    private static final int KEY_DOWN = 1 << 1;
+    private static final int KEY_LEFT = 1 << 2;
+    private static final int KEY_RIGHT = 1 << 3;
+    private static final int KEY_SHOOT = 1 << 4;
+    private static final int KEY_SPRINT = 1 << 5;
+    private static final int KEY_APPROVE = 1 << 6;
+    private static final int KEY_WANTS_UDP = 1 << 7;
+
+    // Delta header bits: which top-level fields follow
+    private static final int D_PHASE = 1;
+    private static final int D_COUNTDOWN = 1 << 1;
+    private static final int D_SCORE = 1 << 2;
+    private static final int D_TIME = 1 << 3;
+    private static final int D_WEATHER = 1 << 4;
+    private static final int D_WINNER = 1 << 5;
+    private static final int D_BALL = 1 << 6;
+    private static final int D_SAME_ROSTER = 1 << 7; // same player ids in the same order as the baseline
+
+    // Delta player bits: which player fields follow
+    private static final int P_FLAGS = 1;    // team + bot/approved/goalkeeper
+    private static final int P_POS = 1 << 1;
+    private static final int P_STAMINA = 1 << 2;
+    private static final int P_GOALS = 1 << 3;
+    private static final int P_NAME = 1 << 4;
+    private static final int P_INPUT_SEQ = 1 << 5;
+
+    // Marks a player that is not in the baseline (full record follows)
+    private static final int NEW_PLAYER = 0xFF;
+
+    // The only strings the game ever uses for these fields, sent as their index
+    private static final String[] WEATHERS = {"SUNNY", "RAINY"};
+    private static final String[] WINNERS = {"", "RED TEAM", "BLUE TEAM", "DRAW"};
+    private static final String[] COMMANDS = {null, "JOIN", "ADMIN_LOGIN", "START", "END", "APPROVE"};
+
+    private static final GameState.Phase[] PHASES = GameState.Phase.values();
+    private static final GameState.Team[] TEAMS = GameState.Team.values();
+
+    private WireCodec() {}
+
+    // ---------------- Encoding ----------------
+
+    // Builds a complete frame (length prefix included) for a full snapshot
+    public static byte[] encodeState(GameState state) {
+        // Copy the reference once, the list may be swapped while we work
+        GameState.PlayerState[] players = state.players.toArray(new GameState.PlayerState[0]);
+        int count = Math.min(players.length, 255);
+
+        byte[][] names = new byte[count][];
+        int size = HEADER_SIZE + STATE_FIXED_SIZE;
+        for (int i = 0; i < count; i++) {
+            names[i] = nameBytes(players[i].name);
+            size += PLAYER_FIXED_SIZE + names[i].length;
+            if (players[i].lastProcessedInput != 0) size += 4;
+        }
+
+        ByteBuffer buf = startFrame(size, MSG_STATE);
+        buf.putInt(state.sequence);
+        buf.put((byte) state.currentPhase.ordinal());
+        buf.put((byte) state.countdownValue);
+        buf.putShort((short) state.scoreRed);
+        buf.putShort((short) state.scoreBlue);
+        buf.putShort((short) parseTime(state.timeString));
+        buf.put((byte) indexOf(WEATHERS, state.weather));
+        buf.put((byte) indexOf(WINNERS, state.winner));
+        buf.putShort(quantize(state.ballX));
+        buf.putShort(quantize(state.ballY));
+        buf.put((byte) count);
+
+        for (int i = 0; i < count; i++) writePlayer(buf, players[i], names[i]);
+        return buf.array();
+    }
+
+    // Builds a frame holding only what changed between 'base' and 'state'.
+    // The receiver must still have 'base' (same sequence number) to rebuild the full state.
+    public static byte[] encodeDelta(GameState base, GameState state) {
+        GameState.PlayerState[] players = state.players.toArray(new GameState.PlayerState[0]);
+        GameState.PlayerState[] basePlayers = base.players.toArray(new GameState.PlayerState[0]);
+        int count = Math.min(players.length, 255);
+
+        boolean sameRoster = count == basePlayers.length;
+        for (int i = 0; sameRoster && i < count; i++) {
+            if (players[i].id != basePlayers[i].id) sameRoster = false;
+        }
+
+        int mask = 0;
+        if (state.currentPhase != base.currentPhase) mask |= D_PHASE;
+        if (state.countdownValue != base.countdownValue) mask |= D_COUNTDOWN;
+        if (state.scoreRed != base.scoreRed || state.scoreBlue != base.scoreBlue) mask |= D_SCORE;
+        if (parseTime(state.timeString) != parseTime(base.timeString)) mask |= D_TIME;
+        if (indexOf(WEATHERS, state.weather) != indexOf(WEATHERS, base.weather)) mask |= D_WEATHER;
+        if (indexOf(WINNERS, state.winner) != indexOf(WINNERS, base.winner)) mask |= D_WINNER;
+        if (quantize(state.ballX) != quantize(base.ballX) || quantize(state.ballY) != quantize(base.ballY)) mask |= D_BALL;
+        if (sameRoster) mask |= D_SAME_ROSTER;
+
+        // Worst case: every player is new. We trim the array at the end.
+        byte[][] names = new byte[count][];
+        int size = HEADER_SIZE + DELTA_FIXED_SIZE + 16;
+        for (int i = 0; i < count; i++) {
+            names[i] = nameBytes(players[i].name);
+            size += 2 + PLAYER_FIXED_SIZE + 4 + names[i].length;
+        }
+
+        ByteBuffer buf = startFrame(size, MSG_DELTA);
+        buf.putInt(state.sequence);
+        buf.putInt(base.sequence);
+        buf.put((byte) mask);
+        if ((mask & D_PHASE) != 0) buf.put((byte) state.currentPhase.ordinal());
+        if ((mask & D_COUNTDOWN) != 0) buf.put((byte) state.countdownValue);
+        if ((mask & D_SCORE) != 0) { buf.putShort((short) state.scoreRed); buf.putShort((short) state.scoreBlue); }
+        if ((mask & D_TIME) != 0) buf.putShort((short) parseTime(state.timeString));
+        if ((mask & D_WEATHER) != 0) buf.put((byte) indexOf(WEATHERS, state.weather));
+        if ((mask & D_WINNER) != 0) buf.put((byte) indexOf(WINNERS, state.winner));
+        if ((mask & D_BALL) != 0) { buf.putShort(quantize(state.ballX)); buf.putShort(quantize(state.ballY)); }
+        buf.put((byte) count);
+
+        for (int i = 0; i < count; i++) {
+            GameState.PlayerState p = players[i];
+            GameState.PlayerState old;
+            if (sameRoster) {
+                old = basePlayers[i];
+            } else {
+                int baseIndex = indexOfPlayer(basePlayers, p.id);
+                if (baseIndex < 0 || baseIndex >= NEW_PLAYER) {
+                    buf.put((byte) NEW_PLAYER);
+                    writePlayer(buf, p, names[i]);
+                    continue;
+                }
+                buf.put((byte) baseIndex);
+                old = basePlayers[baseIndex];
+            }
+
+            int pm = 0;
+            if (GameState.Team.of(p.team) != GameState.Team.of(old.team) || playerFlags(p) != playerFlags(old)) pm |= P_FLAGS;
+            if (quantize(p.x) != quantize(old.x) || quantize(p.y) != quantize(old.y)) pm |= P_POS;
+            if (staminaByte(p) != staminaByte(old)) pm |= P_STAMINA;
+            if (p.goals != old.goals) pm |= P_GOALS;
+            if (p.name == null ? old.name != null : !p.name.equals(old.name)) pm |= P_NAME;
+            if (p.lastProcessedInput != old.lastProcessedInput) pm |= P_INPUT_SEQ;
+
+            buf.put((byte) pm);
+            if ((pm & P_FLAGS) != 0) { buf.put((byte) GameState.Team.of(p.team).ordinal()); buf.put((byte) playerFlags(p)); }
+            if ((pm & P_POS) != 0) { buf.putShort(quantize(p.x)); buf.putShort(quantize(p.y)); }
+            if ((pm & P_STAMINA) != 0) buf.put(staminaByte(p));
+            if ((pm & P_GOALS) != 0) buf.putShort((short) p.goals);
+            if ((pm & P_NAME) != 0) { buf.put((byte) names[i].length); buf.put(names[i]); }
+            if ((pm & P_INPUT_SEQ) != 0) buf.putInt(p.lastProcessedInput);
+        }
+
+        int used = buf.position();
+        buf.putInt(0, used - 4);
+        return Arrays.copyOf(buf.array(), used);
+    }
+
+    public static byte[] encodeInput(InputPacket packet) {
+        byte[] name = nameBytes(packet.playerName);
+        byte[] room = nameBytes(packet.roomName);
+        ByteBuffer buf = startFrame(HEADER_SIZE + INPUT_FIXED_SIZE + name.length + room.length, MSG_INPUT);
+
+        int keys = 0;
+        if (packet.up) keys |= KEY_UP;
+        if (packet.down) keys |= KEY_DOWN;
+        if (packet.left) keys |= KEY_LEFT;
+        if (packet.right) keys |= KEY_RIGHT;
+        if (packet.shoot) keys |= KEY_SHOOT;
+        if (packet.sprint) keys |= KEY_SPRINT;
+        if (packet.adminApproveSignal) keys |= KEY_APPROVE;
+        if (packet.wantsUdp) keys |= KEY_WANTS_UDP;
+
+        buf.put((byte) Math.max(0, indexOf(COMMANDS, packet.command)));
+        buf.put((byte) keys);
+        buf.putInt(packet.id);
+        buf.putInt(packet.sequence);
+        buf.putInt(packet.targetIdToApprove);
+        buf.put((byte) name.length);
+        buf.put(name);
+        buf.put((byte) room.length);
+        buf.put(room);
+        return buf.array();
+    }
+
+    public static byte[] encodeAck(int sequence) {
+        ByteBuffer buf = startFrame(HEADER_SIZE + 4, MSG_ACK);
+        buf.putInt(sequence);
+        return buf.array();
+    }
+
+    public static byte[] encodeUdpHello(int playerId, int token) {
+        ByteBuffer buf = startFrame(HEADER_SIZE + 8, MSG_UDP_HELLO);
+        buf.putInt(playerId);
+        buf.putInt(token);
+        return buf.array();
+    }
+
+    public static byte[] encodeReply(String message) {
+        byte[] text = message.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buf = startFrame(HEADER_SIZE + 2 + text.length, MSG_REPLY);
+        buf.putShort((short) text.length);
+        buf.put(text);
+        return buf.array();
+    }
+
+    // ---------------- Decoding ----------------
+
+    // Checks the version byte and returns the message type.
+    // The buffer is left positioned at the start of the payload.
+    public static byte openFrame(ByteBuffer frame) throws IOException {
+        if (frame.remaining() < 2) throw new IOException("Frame too short");
+        byte version = frame.get();
+        if (version != VERSION) throw new IOException("Unsupported wire version: " + version);
+        return frame.get();
+    }
+
+    // Fix: a body with a valid length but too short for its type used to throw
+    // BufferUnderflowException out of the decoders (and out of the server's selector thread).
+    // Every decoder now fails with an IOException instead, like any other bad frame.
+    public static GameState decodeState(ByteBuffer buf) throws IOException {
+        try {
+            return readState(buf);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated state frame");
+        }
+    }
+
+    private static GameState readState(ByteBuffer buf) throws IOException {
+        GameState state = new GameState();
+        state.sequence = buf.getInt();
+        state.currentPhase = PHASES[checkIndex(buf.get(), PHASES.length)];
+        state.countdownValue = buf.get();
+        state.scoreRed = buf.getShort();
+        state.scoreBlue = buf.getShort();
+        state.timeString = formatTime(buf.getShort());
+        state.weather = WEATHERS[checkIndex(buf.get(), WEATHERS.length)];
+        state.winner = WINNERS[checkIndex(buf.get(), WINNERS.length)];
+        state.ballX = dequantize(buf.getShort());
+        state.ballY = dequantize(buf.getShort());
+
+        int count = buf.get() & 0xFF;
+        GameState.PlayerState[] players = new GameState.PlayerState[count];
+        for (int i = 0; i < count; i++) players[i] = readPlayer(buf);
+
+        // Build the list in one go instead of copying the array on every add
+        state.players = new CopyOnWriteArrayList<>(players);
+        return state;
+    }
+
+    // Rebuilds a full state from a delta. Returns null if we no longer have the baseline
+    // it was built against (the caller should just wait, the server falls back to a full snapshot).
+    public static GameState decodeDelta(ByteBuffer buf, SnapshotHistory history) throws IOException {
+        try {
+            return readDelta(buf, history);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated delta frame");
+        }
+    }
+
+    private static GameState readDelta(ByteBuffer buf, SnapshotHistory history) throws IOException {
+        int sequence = buf.getInt();
+        GameState base = history.get(buf.getInt());
+        if (base == null) return null;
+
+        GameState state = new GameState();
+        state.sequence = sequence;
+        int mask = buf.get() & 0xFF;
+        state.currentPhase = (mask & D_PHASE) != 0 ? PHASES[checkIndex(buf.get(), PHASES.length)] : base.currentPhase;
+        state.countdownValue = (mask & D_COUNTDOWN) != 0 ? buf.get() : base.countdownValue;
+        if ((mask & D_SCORE) != 0) { state.scoreRed = buf.getShort(); state.scoreBlue = buf.getShort(); }
+        else { state.scoreRed = base.scoreRed; state.scoreBlue = base.scoreBlue; }
+        state.timeString = (mask & D_TIME) != 0 ? formatTime(buf.getShort()) : base.timeString;
+        state.weather = (mask & D_WEATHER) != 0 ? WEATHERS[checkIndex(buf.get(), WEATHERS.length)] : base.weather;
+        state.winner = (mask & D_WINNER) != 0 ? WINNERS[checkIndex(buf.get(), WINNERS.length)] : base.winner;
+        if ((mask & D_BALL) != 0) { state.ballX = dequantize(buf.getShort()); state.ballY = dequantize(buf.getShort()); }
+        else { state.ballX = base.ballX; state.ballY = base.ballY; }
+
+        GameState.PlayerState[] basePlayers = base.players.toArray(new GameState.PlayerState[0]);
+        boolean sameRoster = (mask & D_SAME_ROSTER) != 0;
+        int count = buf.get() & 0xFF;
+        GameState.PlayerState[] players = new GameState.PlayerState[count];
+
+        for (int i = 0; i < count; i++) {
+            int baseIndex = sameRoster ? i : buf.get() & 0xFF;
+            if (baseIndex == NEW_PLAYER) {
+                players[i] = readPlayer(buf);
+                continue;
+            }
+            if (baseIndex >= basePlayers.length) throw new IOException("Delta refers to missing player " + baseIndex);
+
+            GameState.PlayerState p = basePlayers[baseIndex].copy();
+            int pm = buf.get();
+            if ((pm & P_FLAGS) != 0) {
+                p.team = TEAMS[checkIndex(buf.get(), TEAMS.length)].name();
+                applyFlags(p, buf.get());
+            }
+            if ((pm & P_POS) != 0) { p.x = dequantize(buf.getShort()); p.y = dequantize(buf.getShort()); }
+            if ((pm & P_STAMINA) != 0) p.stamina = buf.get();
+            if ((pm & P_GOALS) != 0) p.goals = buf.getShort();
+            if ((pm & P_NAME) != 0) p.name = readName(buf);
+            if ((pm & P_INPUT_SEQ) != 0) p.lastProcessedInput = buf.getInt();
+            players[i] = p;
+        }
+
+        state.players = new CopyOnWriteArrayList<>(players);
+        return state;
+    }
+
+    public static int decodeAck(ByteBuffer buf) throws IOException {
+        need(buf, 4);
+        return buf.getInt();
+    }
+
+    public static InputPacket decodeInput(ByteBuffer buf) throws IOException {
+        need(buf, 16); // command, keys, id, sequence, target and the two name lengths
+        InputPacket packet = new InputPacket();
+        packet.command = COMMANDS[checkIndex(buf.get(), COMMANDS.length)];
+        int keys = buf.get();
+        packet.up = (keys & KEY_UP) != 0;
+        packet.down = (keys & KEY_DOWN) != 0;
+        packet.left = (keys & KEY_LEFT) != 0;
+        packet.right = (keys & KEY_RIGHT) != 0;
+        packet.shoot = (keys & KEY_SHOOT) != 0;
+        packet.sprint = (keys & KEY_SPRINT) != 0;
+        packet.adminApproveSignal = (keys & KEY_APPROVE) != 0;
+        packet.wantsUdp = (keys & KEY_WANTS_UDP) != 0;
+        packet.id = buf.getInt();
+        packet.sequence = buf.getInt();
+        packet.targetIdToApprove = buf.getInt();
+        String name = readName(buf);
+        packet.playerName = name.isEmpty() ? null : name;
+        String room = readName(buf);
+        packet.roomName = room.isEmpty() ? null : room;
+        return packet;
+    }
+
+    // Returns {playerId, token}
+    public static int[] decodeUdpHello(ByteBuffer buf) throws IOException {
+        need(buf, 8);
+        return new int[]{buf.getInt(), buf.getInt()};
+    }
+
+    public static String decodeReply(ByteBuffer buf) throws IOException {
+        need(buf, 2);
+        byte[] text = new byte[buf.getShort() & 0xFFFF];
+        need(buf, text.length);
+        buf.get(text);
+        return new String(text, StandardCharsets.UTF_8);
+    }
+
+    // ---------------- Stream helpers (blocking sockets) ----------------
+
+    // Reads one frame and returns its body (version + type + payload)
+    public static ByteBuffer readFrame(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 2 || length > MAX_FRAME) throw new IOException("Bad frame length: " + length);
+        byte[] body = new byte[length];
+        in.readFully(body);
+        return ByteBuffer.wrap(body);
+    }
+
+    // UDP: one datagram holds exactly one frame. Returns the body like readFrame does.
+    public static ByteBuffer openDatagram(ByteBuffer datagram) throws IOException {
+        if (datagram.remaining() < 6) throw new IOException("Datagram too short");
+        int length = datagram.getInt();
+        if (length != datagram.remaining()) throw new IOException("Bad datagram length: " + length);
+        return datagram.slice();
+    }
+
+    public static void writeFrame(DataOutputStream out, byte[] frame) throws IOException {
+        out.write(frame);
+        out.flush();
+    }
+
+    // ---------------- Internal helpers ----------------
+
+    private static ByteBuffer startFrame(int totalSize, byte type) {
+        ByteBuffer buf = ByteBuffer.allocate(totalSize);
+        buf.putInt(totalSize - 4);
+        buf.put(VERSION);
+        buf.put(type);
+        return buf;
+    }
+
+    private static void writePlayer(ByteBuffer buf, GameState.PlayerState p, byte[] name) {
+        buf.putInt(p.id);
+        buf.put((byte) GameState.Team.of(p.team).ordinal());
+        buf.put((byte) playerFlags(p));
+        buf.putShort(quantize(p.x));
+        buf.putShort(quantize(p.y));
+        buf.put(staminaByte(p));
+        buf.putShort((short) p.goals);
+        buf.put((byte) name.length);
+        buf.put(name);
+        if (p.lastProcessedInput != 0) buf.putInt(p.lastProcessedInput);
+    }
+
+    private static GameState.PlayerState readPlayer(ByteBuffer buf) throws IOException {
+        int id = buf.getInt();
+        GameState.Team team = TEAMS[checkIndex(buf.get(), TEAMS.length)];
+        int flags = buf.get();
+        double x = dequantize(buf.getShort());
+        double y = dequantize(buf.getShort());
+        double stamina = buf.get();
+        int goals = buf.getShort();
+        String name = readName(buf);
+
+        GameState.PlayerState p = new GameState.PlayerState(id, name, team.name(), x, y, (flags & FLAG_BOT) != 0);
+        applyFlags(p, flags);
+        p.stamina = stamina;
+        p.goals = goals;
+        if ((flags & FLAG_INPUT_SEQ) != 0) p.lastProcessedInput = buf.getInt();
+        return p;
+    }
+
+    private static int indexOfPlayer(GameState.PlayerState[] players, int id) {
+        for (int i = 0; i < players.length; i++) if (players[i].id == id) return i;
+        return -1;
+    }
+
+    private static void applyFlags(GameState.PlayerState p, int flags) {
+        p.isBot = (flags & FLAG_BOT) != 0;
+        p.isApproved = (flags & FLAG_APPROVED) != 0;
+        p.isGoalKeeper = (flags & FLAG_GOALKEEPER) != 0;
+    }
+
+    private static byte staminaByte(GameState.PlayerState p) {
+        return (byte) Math.max(0, Math.min(100, Math.round(p.stamina)));
+    }
+
+    private static int playerFlags(GameState.PlayerState p) {
+        int flags = 0;
+        if (p.isBot) flags |= FLAG_BOT;
+        if (p.isApproved) flags |= FLAG_APPROVED;
+        if (p.isGoalKeeper) flags |= FLAG_GOALKEEPER;
+        if (p.lastProcessedInput != 0) flags |= FLAG_INPUT_SEQ;
+        return flags;
+    }
+
+    private static short quantize(double value) {
+        long q = Math.round(value * POS_SCALE);
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, q));
+    }
+
+    private static double dequantize(short value) {
+        return value / POS_SCALE;
+    }
+
+    // Names are capped at 255 bytes so the length fits in one byte. The cut is moved back to the
+    // start of a character, so a long name in a multi-byte script doesn't end in half a character.
+    private static byte[] nameBytes(String name) {
+        if (name == null) return new byte[0];
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= 255) return bytes;
+        int end = 255;
+        while (end > 0 && (bytes[end] & 0xC0) == 0x80) end--; // 10xxxxxx continues the character before
+        return Arrays.copyOf(bytes, end);
+    }
+
+    private static String readName(ByteBuffer buf) throws IOException {
+        need(buf, 1);
+        int length = buf.get() & 0xFF;
+        if (length == 0) return "";
+        need(buf, length);
+        byte[] bytes = new byte[length];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // "mm:ss" -> total seconds (no regex or Integer.parseInt, this runs every tick)
+    private static int parseTime(String time) {
+        if (time == null) return 0;
+        int colon = time.indexOf(':');
+        if (colon < 0) return 0;
+        int mm = 0, ss = 0;
+        for (int i = 0; i < colon; i++) mm = mm * 10 + (time.charAt(i) - '0');
+        for (int i = colon + 1; i < time.length(); i++) ss = ss * 10 + (time.charAt(i) - '0');
+        return mm * 60 + ss;
+    }
+
+    private static String formatTime(int totalSec) {
+        int mm = totalSec / 60;
+        int ss = totalSec % 60;
+        return (mm < 10 ? "0" : "") + mm + ":" + (ss < 10 ? "0" : "") + ss;
+    }
+
+    private static int indexOf(String[] values, String value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null ? value == null : values[i].equals(value)) return i;
+        }
+        return 0;
+    }
+
+    private static void need(ByteBuffer buf, int bytes) throws IOException {
+        if (buf.remaining() < bytes) throw new IOException("Frame too short: " + buf.remaining() + " bytes left, need " + bytes);
+    }
+
+    private static int checkIndex(byte value, int size) throws IOException {
+        if (value < 0 || value >= size) throw new IOException("Bad enum value on the wire: " + value);
+        return value;
+    }
+}
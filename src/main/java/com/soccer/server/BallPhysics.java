@@ -0,0 +1,142 @@
+package com.soccer.server;
+
+import com.soccer.common.Constants;
+
+// Moves the ball for one tick with continuous collision detection.
+// The old code jumped the ball to its end position and only then looked for goals and walls,
+// so a hard shot (10 px per tick at 60 Hz, 30 px at 20 Hz) could jump over the 5 px goal-line
+// window or through a player. Here the ball's path is swept instead: every sub-step finds the
+// first thing the segment hits (a player, the goal line, a wall) and stops or bounces there.
+//
+// Sub-steps are adaptive: the ball never moves more than MAX_STEP per sub-step, so a slow ball
+// costs one step per tick and a fast one at a low tick rate a few more. Goals come out the same
+// whatever -Dsoccer.tickRate is. After a bounce off a player the rest of the sub-step is travelled
+// along the new velocity, so a hit costs the ball no distance beyond what the bounce takes.
+public class BallPhysics {
+    public static final int NO_GOAL = 0;
+    public static final int GOAL_LEFT = 1;  // Red's goal, Blue scores
+    public static final int GOAL_RIGHT = 2; // Blue's goal, Red scores
+
+    private static final double BALL_DIST = Constants.PLAYER_RADIUS + Constants.BALL_RADIUS;
+    private static final double MAX_STEP = Constants.BALL_RADIUS;
+    private static final int MAX_SUBSTEPS = 32;
+    // Bounces followed within one sub-step (the ball between two players); after that the rest is dropped
+    private static final int MAX_BOUNCES = 4;
+    // The ball counts as in once its center is this close to the end of the pitch (same as before)
+    private static final double GOAL_LINE = 5.0;
+    private static final double GOAL_TOP = (Constants.HEIGHT / 2.0) - (Constants.GOAL_SIZE / 2.0);
+    private static final double GOAL_BOTTOM = (Constants.HEIGHT / 2.0) + (Constants.GOAL_SIZE / 2.0);
+
+    private final SpatialGrid grid;
+    private int[] nearby = new int[32];
+
+    // Slot of the last player the ball bounced off during move(), or -1
+    public int toucher = -1;
+    // Id of the player who just kicked the ball. The ball goes through them until it is clear,
+    // otherwise a kick towards goal with the ball behind the kicker would bounce off their own back.
+    public int kickerId = Integer.MIN_VALUE;
+
+    // The grid must be built from the current player positions
+    public BallPhysics(SpatialGrid grid) {
+        this.grid = grid;
+    }
+
+    // Moves the ball dt seconds along its velocity. Returns NO_GOAL, GOAL_LEFT or GOAL_RIGHT;
+    // after a goal the ball is left on the goal line.
+    public int move(PhysicsWorld w, double dt) {
+        toucher = -1;
+        if (nearby.length < w.count) nearby = new int[w.count * 2];
+
+        double travel = Math.hypot(w.ballVx, w.ballVy) * dt;
+        int steps = (int) Math.max(1, Math.min(MAX_SUBSTEPS, Math.ceil(travel / MAX_STEP)));
+        double h = dt / steps;
+        for (int s = 0; s < steps; s++) {
+            int goal = sweep(w, h);
+            if (goal != NO_GOAL) return goal;
+        }
+        return NO_GOAL;
+    }
+
+    // One sub-step of h seconds: players first (they stop the ball), then the goal lines, then the
+    // walls. A bounce off a player ends the segment at the contact point, and the time left in the
+    // sub-step is travelled again from there with the new velocity.
+    private int sweep(PhysicsWorld w, double h) {
+        double remaining = h;
+        for (int bounce = 0; bounce <= MAX_BOUNCES && remaining > 0; bounce++) {
+            double x0 = w.ballX, y0 = w.ballY;
+            double dx = w.ballVx * remaining, dy = w.ballVy * remaining;
+
+            // Earliest player the ball's path touches
+            int hit = -1;
+            double hitT = 1;
+            double len = Math.hypot(dx, dy);
+            if (len > 0) {
+                int found = grid.queryRadius(x0 + dx / 2, y0 + dy / 2, len / 2 + BALL_DIST, nearby);
+                boolean kickerClear = true;
+                for (int k = 0; k < found; k++) {
+                    int i = nearby[k];
+                    if (w.id[i] == kickerId) {
+                        kickerClear = false;
+                        continue;
+                    }
+                    double t = contactTime(x0 - w.x[i], y0 - w.y[i], dx, dy);
+                    if (t >= 0 && t < hitT) { hitT = t; hit = i; }
+                }
+                if (kickerClear) kickerId = Integer.MIN_VALUE;
+            }
+            double x1 = x0 + dx * hitT, y1 = y0 + dy * hitT;
+
+            // Goal: the path crosses a goal line between the posts (checked where it crosses, not where it ends)
+            if (x1 < GOAL_LINE && inMouth(crossingY(x0, y0, x1, y1, GOAL_LINE))) {
+                w.ballX = GOAL_LINE; w.ballY = crossingY(x0, y0, x1, y1, GOAL_LINE);
+                return GOAL_LEFT;
+            }
+            if (x1 > Constants.WIDTH - GOAL_LINE && inMouth(crossingY(x0, y0, x1, y1, Constants.WIDTH - GOAL_LINE))) {
+                w.ballX = Constants.WIDTH - GOAL_LINE; w.ballY = crossingY(x0, y0, x1, y1, Constants.WIDTH - GOAL_LINE);
+                return GOAL_RIGHT;
+            }
+
+            w.ballX = x1; w.ballY = y1;
+            if (hit >= 0) {
+                double nx = x1 - w.x[hit], ny = y1 - w.y[hit];
+                double d = Math.hypot(nx, ny);
+                if (d > 1e-9) Collisions.bounceBall(w, hit, nx / d, ny / d);
+                toucher = hit;
+            }
+
+            // Walls: mirror the overshoot back in. Fix: the velocity used to flip every tick
+            // the ball was outside, so it could get stuck buzzing on the line.
+            if (w.ballX < 0) { w.ballX = -w.ballX; w.ballVx = Math.abs(w.ballVx); }
+            if (w.ballX > Constants.WIDTH) { w.ballX = 2 * Constants.WIDTH - w.ballX; w.ballVx = -Math.abs(w.ballVx); }
+            if (w.ballY < 0) { w.ballY = -w.ballY; w.ballVy = Math.abs(w.ballVy); }
+            if (w.ballY > Constants.HEIGHT) { w.ballY = 2 * Constants.HEIGHT - w.ballY; w.ballVy = -Math.abs(w.ballVy); }
+
+            if (hit < 0) break;
+            remaining *= 1 - hitT;
+        }
+        return NO_GOAL;
+    }
+
+    // First t in [0, 1] where the ball at (px, py) + t * (dx, dy), relative to a player, touches it.
+    // -1 if it never does. A ball that already overlaps counts at t = 0, unless it is moving away.
+    private static double contactTime(double px, double py, double dx, double dy) {
+        double c = px * px + py * py - BALL_DIST * BALL_DIST;
+        double pd = px * dx + py * dy;
+        if (c <= 0) return pd < 0 ? 0 : -1;
+        double a = dx * dx + dy * dy;
+        double disc = pd * pd - a * c;
+        if (disc < 0 || pd >= 0) return -1; // Misses, or moving away
+        double t = (-pd - Math.sqrt(disc)) / a;
+        return t <= 1 ? t : -1;
+    }
+
+    // y where the segment crosses x = lineX (the end point if it doesn't cross, e.g. it started behind the line)
+    private static double crossingY(double x0, double y0, double x1, double y1, double lineX) {
+        if ((x0 - lineX) * (x1 - lineX) >= 0) return y1;
+        return y0 + (y1 - y0) * (lineX - x0) / (x1 - x0);
+    }
+
+    private static boolean inMouth(double y) {
+        return y > GOAL_TOP && y < GOAL_BOTTOM;
+    }
+}
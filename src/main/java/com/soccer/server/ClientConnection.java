@@ -0,0 +1,165 @@
+package com.soccer.server;
+
+import java.net.SocketAddress;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Everything the server remembers about one connected client (player or admin).
+//
+// Nobody writes to the socket directly. Frames go into this connection's outbound queue and
+// the transport (see the subclasses) drains it on its own thread. The snapshot part of the
+// queue is bounded, so a slow client can never hold up the broadcast for everybody else.
+public abstract class ClientConnection {
+
+    // What to do when a client can't keep up and its snapshot queue is full
+    public enum SlowClientPolicy {
+        DROP_TO_LATEST, // throw away the queued snapshots, keep only the newest one
+        DISCONNECT      // kick the client
+    }
+
+    // About 130 ms of snapshots at 60 Hz
+    public static final int MAX_QUEUED_SNAPSHOTS = 8;
+
+    public static final SlowClientPolicy SLOW_CLIENT_POLICY =
+            SlowClientPolicy.valueOf(System.getProperty("soccer.slowClientPolicy", "DROP_TO_LATEST"));
+
+    // Last snapshot this client told us it has received.
+    // -1 means "nothing yet", so the next update has to be a full snapshot.
+    public volatile int lastAckedSequence = -1;
+
+    // Filled in by the handshake (ServerMain.handleFrame). volatile: a player's join is
+    // accepted on the game thread, while this connection's own thread keeps reading.
+    public volatile boolean isHandshakeDone = false;
+    public boolean isAdmin = false;
+    public volatile int playerId = -1;
+    // The match this client is in (see RoomRegistry), set as soon as it asks to join one
+    public volatile RoomRegistry.Room room;
+
+    // UDP channel (see UdpTransport). udpAddress stays null until the client's hello arrives.
+    public volatile int udpToken = 0;
+    public volatile SocketAddress udpAddress;
+    // The hello only proves client -> server works. Snapshots move to UDP once the client has acked
+    // one it got as a datagram (udpConfirmed); until then they go over TCP too.
+    public volatile boolean udpConfirmed = false;
+    public volatile long udpHelloNanos;
+    public int lastUdpInputSequence = 0;
+
+    // How many snapshots we skipped for this client because it was too slow
+    public volatile long droppedSnapshots = 0;
+
+    // Handshake replies etc. are never dropped and always go out before snapshots.
+    // Snapshot frames are shared between clients, they must never be modified.
+    private final ArrayDeque<byte[]> controlFrames = new ArrayDeque<>();
+    private final ArrayDeque<byte[]> snapshotFrames = new ArrayDeque<>();
+    private final Lock queueLock = new ReentrantLock();
+    private final Condition frameQueued = queueLock.newCondition();
+    protected volatile boolean closed = false;
+    protected volatile boolean closeWhenDrained = false;
+
+    // Queues a control frame (length prefix included)
+    public void send(byte[] frame) {
+        if (closed) return;
+        queueLock.lock();
+        try {
+            controlFrames.add(frame);
+            frameQueued.signal();
+        } finally {
+            queueLock.unlock();
+        }
+        onFrameQueued();
+    }
+
+    // Queues a snapshot frame, applying the slow client policy if the queue is full
+    public void sendSnapshot(byte[] frame) {
+        if (closed) return;
+        boolean tooSlow = false;
+        queueLock.lock();
+        try {
+            if (snapshotFrames.size() >= MAX_QUEUED_SNAPSHOTS) {
+                if (SLOW_CLIENT_POLICY == SlowClientPolicy.DISCONNECT) {
+                    tooSlow = true;
+                } else {
+                    // Deltas are built against the last ACKED snapshot, not the previous one,
+                    // so skipping snapshots is always safe.
+                    droppedSnapshots += snapshotFrames.size();
+                    snapshotFrames.clear();
+                }
+            }
+            if (!tooSlow) {
+                snapshotFrames.add(frame);
+                frameQueued.signal();
+            }
+        } finally {
+            queueLock.unlock();
+        }
+
+        if (tooSlow) {
+            System.out.println("[Net] Disconnecting slow client (player " + playerId + ")");
+            close();
+        } else {
+            onFrameQueued();
+        }
+    }
+
+    // Next frame to write, or null if the queue is empty
+    protected byte[] pollFrame() {
+        queueLock.lock();
+        try {
+            byte[] frame = controlFrames.poll();
+            return frame != null ? frame : snapshotFrames.poll();
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    // Like pollFrame, but waits up to 'timeoutMs' for something to arrive (used by writer threads)
+    protected byte[] awaitFrame(long timeoutMs) throws InterruptedException {
+        queueLock.lock();
+        try {
+            if (controlFrames.isEmpty() && snapshotFrames.isEmpty()) frameQueued.await(timeoutMs, TimeUnit.MILLISECONDS);
+            byte[] frame = controlFrames.poll();
+            return frame != null ? frame : snapshotFrames.poll();
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    protected boolean hasQueuedFrames() {
+        queueLock.lock();
+        try {
+            return !controlFrames.isEmpty() || !snapshotFrames.isEmpty();
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    protected void clearQueue() {
+        queueLock.lock();
+        try {
+            controlFrames.clear();
+            snapshotFrames.clear();
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    // Closes the connection once everything already queued (e.g. a "FAIL:" reply) is written
+    public void closeAfterSending() {
+        closeWhenDrained = true;
+        queueLock.lock();
+        try {
+            frameQueued.signal();
+        } finally {
+            queueLock.unlock();
+        }
+        onFrameQueued();
+    }
+
+    // Tells the transport there is something new to write
+    protected abstract void onFrameQueued();
+
+    public abstract void close();
+}
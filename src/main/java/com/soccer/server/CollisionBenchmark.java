@@ -0,0 +1,100 @@
+package com.soccer.server;
+
+import com.soccer.common.Constants;
+
+import java.util.Random;
+
+// Measures what collision resolution costs per tick, with the grid broadphase and with the
+// naive "every pair" check for comparison, and counts the overlapping players each one leaves.
+// The budget is one tick at GameRoom.TICK_RATE; the game also has to run AI and build snapshots
+// in that time, so collisions should stay at a small fraction of it.
+// This only measures speed; that the rules are right (and that the grid gives the same result as
+// the every-pair check) is covered by CollisionsTest.
+//
+// Usage: CollisionBenchmark [ticks]
+public class CollisionBenchmark {
+    // 22 is one match; above ~600 bodies the pitch is simply too full to separate everyone
+    private static final int[] SIZES = {22, 44, 100, 250, 500};
+
+    public static void main(String[] args) {
+        int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        double budgetNs = 1e9 / GameRoom.TICK_RATE;
+
+        System.out.printf("%6s | %12s | %12s | %10s | %s%n", "bodies", "grid ns/tick", "naive ns/tick", "% of tick", "overlaps after grid / naive");
+        for (int n : SIZES) {
+            SpatialGrid grid = new SpatialGrid(Constants.WIDTH, Constants.HEIGHT, 64);
+            Collisions collisions = new Collisions(grid);
+
+            // Warm-up round so the JIT has compiled both versions before we measure
+            PhysicsWorld warmA = randomWorld(n, 1), warmB = randomWorld(n, 1);
+            run(ticks, warmA, () -> collisions.resolve(warmA));
+            run(ticks, warmB, () -> naiveSeparate(warmB));
+
+            PhysicsWorld a = randomWorld(n, 42);
+            PhysicsWorld b = randomWorld(n, 42);
+            double gridNs = run(ticks, a, () -> collisions.resolve(a));
+            double naiveNs = run(ticks, b, () -> naiveSeparate(b));
+
+            System.out.printf("%6d | %12.0f | %12.0f | %9.2f%% | %d / %d%n",
+                    n, gridNs, naiveNs, gridNs / budgetNs * 100, overlaps(a), overlaps(b));
+        }
+    }
+
+    // Average time of one resolve while the bodies jitter around like players do
+    private static double run(int ticks, PhysicsWorld w, Runnable resolve) {
+        Random random = new Random(7);
+        long total = 0;
+        for (int t = 0; t < ticks; t++) {
+            for (int i = 0; i < w.count; i++) {
+                w.x[i] = Math.max(0, Math.min(Constants.WIDTH, w.x[i] + random.nextGaussian() * 3));
+                w.y[i] = Math.max(0, Math.min(Constants.HEIGHT, w.y[i] + random.nextGaussian() * 3));
+            }
+            long start = System.nanoTime();
+            resolve.run();
+            total += System.nanoTime() - start;
+        }
+        return total / (double) ticks;
+    }
+
+    private static PhysicsWorld randomWorld(int n, long seed) {
+        Random random = new Random(seed);
+        PhysicsWorld w = new PhysicsWorld(n);
+        for (int i = 0; i < n; i++) {
+            int slot = w.add(i, "P" + i, (byte) (i % 2), true);
+            w.x[slot] = random.nextDouble() * Constants.WIDTH;
+            w.y[slot] = random.nextDouble() * Constants.HEIGHT;
+        }
+        w.ballX = Constants.WIDTH / 2.0;
+        w.ballY = Constants.HEIGHT / 2.0;
+        return w;
+    }
+
+    // Same separation rule as Collisions, testing every pair
+    private static void naiveSeparate(PhysicsWorld w) {
+        double minDist = Constants.PLAYER_RADIUS * 2;
+        for (int i = 0; i < w.count; i++) {
+            for (int j = i + 1; j < w.count; j++) {
+                double dx = w.x[j] - w.x[i], dy = w.y[j] - w.y[i];
+                double d2 = dx * dx + dy * dy;
+                if (d2 >= minDist * minDist) continue;
+                double d = Math.sqrt(d2);
+                double nx = d > 1e-9 ? dx / d : 1, ny = d > 1e-9 ? dy / d : 0;
+                double push = (minDist - d) / 2;
+                w.x[i] -= nx * push; w.y[i] -= ny * push;
+                w.x[j] += nx * push; w.y[j] += ny * push;
+            }
+        }
+    }
+
+    // Pairs still overlapping by more than half a pixel (a single pass can't untangle big crowds)
+    private static int overlaps(PhysicsWorld w) {
+        double minDist = Constants.PLAYER_RADIUS * 2 - 0.5;
+        int count = 0;
+        for (int i = 0; i < w.count; i++) {
+            for (int j = i + 1; j < w.count; j++) {
+                if (Math.hypot(w.x[j] - w.x[i], w.y[j] - w.y[i]) < minDist) count++;
+            }
+        }
+        return count;
+    }
+}
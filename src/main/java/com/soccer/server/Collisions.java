@@ -0,0 +1,104 @@
+package com.soccer.server;
+
+import com.soccer.common.Constants;
+
+import java.util.Arrays;
+
+// Circle-circle collisions between players, and between players and the ball.
+// The spatial grid is the broadphase: each body only tests the few bodies in the cells around it,
+// so the cost grows with the number of bodies instead of with its square.
+//
+// Players are pushed apart so they no longer overlap (half each). The ball is pushed out of a
+// player and bounces off it, taking the player's own velocity into account, so running into
+// the ball dribbles it forward and a shot that hits a defender is deflected.
+public class Collisions {
+    private static final double PLAYER_DIST = Constants.PLAYER_RADIUS * 2;
+    private static final double BALL_DIST = Constants.PLAYER_RADIUS + Constants.BALL_RADIUS;
+    // How much of the ball's speed towards a player survives the bounce (0 = dead stop, 1 = perfect bounce)
+    private static final double BALL_RESTITUTION = 0.6;
+
+    private final SpatialGrid grid;
+    private int[] nearby = new int[32];
+
+    public Collisions(SpatialGrid grid) {
+        this.grid = grid;
+    }
+
+    // Resolves all overlaps in the world. Returns the slot of a player the ball bounced off, or -1.
+    public int resolve(PhysicsWorld w) {
+        if (nearby.length < w.count) nearby = new int[w.count * 2];
+        grid.rebuild(w.x, w.y, w.count);
+        separatePlayers(w);
+        return deflectBall(w);
+    }
+
+    private void separatePlayers(PhysicsWorld w) {
+        for (int i = 0; i < w.count; i++) {
+            // Bodies move a little as pairs are pushed apart, so query with some slack, and visit
+            // the candidates in slot order so the result is the same as testing every pair in order
+            int found = grid.queryRadius(w.x[i], w.y[i], PLAYER_DIST + Constants.PLAYER_RADIUS, nearby);
+            Arrays.sort(nearby, 0, found);
+            for (int k = 0; k < found; k++) {
+                int j = nearby[k];
+                if (j <= i) continue; // Each pair once
+
+                double dx = w.x[j] - w.x[i], dy = w.y[j] - w.y[i];
+                double d2 = dx * dx + dy * dy;
+                if (d2 >= PLAYER_DIST * PLAYER_DIST) continue;
+
+                double d = Math.sqrt(d2);
+                double nx, ny;
+                if (d > 1e-9) { nx = dx / d; ny = dy / d; }
+                else { nx = 1; ny = 0; d = 0; } // Same spot: push apart sideways
+
+                double push = (PLAYER_DIST - d) / 2;
+                w.x[i] -= nx * push; w.y[i] -= ny * push;
+                w.x[j] += nx * push; w.y[j] += ny * push;
+                clamp(w, i);
+                clamp(w, j);
+            }
+        }
+    }
+
+    private int deflectBall(PhysicsWorld w) {
+        int toucher = -1;
+        // Player positions changed after the rebuild, but only by a few pixels; the query
+        // radius has enough slack for that
+        int found = grid.queryRadius(w.ballX, w.ballY, BALL_DIST + Constants.PLAYER_RADIUS, nearby);
+        for (int k = 0; k < found; k++) {
+            int i = nearby[k];
+            double dx = w.ballX - w.x[i], dy = w.ballY - w.y[i];
+            double d2 = dx * dx + dy * dy;
+            if (d2 >= BALL_DIST * BALL_DIST) continue;
+
+            double d = Math.sqrt(d2);
+            double nx, ny;
+            if (d > 1e-9) { nx = dx / d; ny = dy / d; }
+            else { nx = w.team[i] == PhysicsWorld.RED ? 1 : -1; ny = 0; } // Ball dead center: out towards the attack
+
+            // Put the ball on the player's edge
+            w.ballX = w.x[i] + nx * BALL_DIST;
+            w.ballY = w.y[i] + ny * BALL_DIST;
+
+            bounceBall(w, i, nx, ny);
+            toucher = i;
+        }
+        return toucher;
+    }
+
+    // Bounce off the moving player i, (nx, ny) is the unit normal from the player to the ball.
+    // Only the part of the relative velocity going into the player changes. Also used by BallPhysics.
+    static void bounceBall(PhysicsWorld w, int i, double nx, double ny) {
+        double rvx = w.ballVx - w.vx[i], rvy = w.ballVy - w.vy[i];
+        double vn = rvx * nx + rvy * ny;
+        if (vn < 0) {
+            w.ballVx -= (1 + BALL_RESTITUTION) * vn * nx;
+            w.ballVy -= (1 + BALL_RESTITUTION) * vn * ny;
+        }
+    }
+
+    private static void clamp(PhysicsWorld w, int i) {
+        w.x[i] = Math.max(0, Math.min(Constants.WIDTH, w.x[i]));
+        w.y[i] = Math.max(0, Math.min(Constants.HEIGHT, w.y[i]));
+    }
+}
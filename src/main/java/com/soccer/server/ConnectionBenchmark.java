@@ -0,0 +1,119 @@
+package com.soccer.server;
+
+import com.soccer.common.Constants;
+import com.soccer.common.InputPacket;
+import com.soccer.common.WireCodec;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+// Load tool to compare the server modes (nio / blocking / virtual).
+// Opens N spectator connections (they log in like the admin panel does), acks every snapshot
+// like a real client, and reports how many connections are actually being served.
+// Start ServerMain in the mode you want to test first.
+//
+// Usage: ConnectionBenchmark [host] [connections] [seconds]
+public class ConnectionBenchmark {
+
+    private static class Conn {
+        final SocketChannel channel;
+        final ByteBuffer readBuffer = ByteBuffer.allocate(16 * 1024);
+        long snapshots = 0;
+        long lastSnapshotAt = 0;
+
+        Conn(SocketChannel channel) { this.channel = channel; }
+    }
+
+    public static void main(String[] args) throws IOException {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        InputPacket login = new InputPacket();
+        login.command = "ADMIN_LOGIN";
+        byte[] loginFrame = WireCodec.encodeInput(login);
+
+        Selector selector = Selector.open();
+        List<Conn> conns = new ArrayList<>();
+        int failed = 0;
+
+        // Connect everyone (blocking connect, then switch to non-blocking for the read loop)
+        long startConnect = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            try {
+                SocketChannel ch = SocketChannel.open(new InetSocketAddress(host, Constants.PORT));
+                ch.write(ByteBuffer.wrap(loginFrame));
+                ch.configureBlocking(false);
+                Conn c = new Conn(ch);
+                ch.register(selector, SelectionKey.OP_READ, c);
+                conns.add(c);
+            } catch (IOException e) {
+                failed++;
+            }
+        }
+        System.out.printf("Opened %d/%d connections in %d ms (%d failed)%n",
+                conns.size(), count, (System.nanoTime() - startConnect) / 1_000_000, failed);
+
+        long bytes = 0;
+        long end = System.currentTimeMillis() + seconds * 1000L;
+        while (System.currentTimeMillis() < end) {
+            selector.select(100);
+            Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+            while (it.hasNext()) {
+                SelectionKey key = it.next();
+                it.remove();
+                Conn c = (Conn) key.attachment();
+                try {
+                    int n = c.channel.read(c.readBuffer);
+                    if (n < 0) { key.cancel(); continue; }
+                    bytes += n;
+                    readFrames(c);
+                } catch (IOException e) {
+                    key.cancel();
+                }
+            }
+        }
+
+        // A connection counts as "served" if it got a snapshot during the last second
+        long now = System.currentTimeMillis();
+        int served = 0;
+        long snapshots = 0;
+        for (Conn c : conns) {
+            if (now - c.lastSnapshotAt < 1000) served++;
+            snapshots += c.snapshots;
+            try { c.channel.close(); } catch (IOException e) {}
+        }
+        System.out.printf("Served: %d/%d connections | %.0f snapshots/s total | %.1f KB/s%n",
+                served, count, snapshots / (double) seconds, bytes / 1024.0 / seconds);
+        System.exit(0);
+    }
+
+    private static void readFrames(Conn c) throws IOException {
+        ByteBuffer buf = c.readBuffer;
+        buf.flip();
+        while (buf.remaining() >= 4) {
+            int length = buf.getInt(buf.position());
+            if (buf.remaining() < 4 + length) break;
+            buf.position(buf.position() + 4);
+            ByteBuffer body = buf.slice(buf.position(), length);
+            buf.position(buf.position() + length);
+
+            byte type = WireCodec.openFrame(body);
+            if (type == WireCodec.MSG_STATE || type == WireCodec.MSG_DELTA) {
+                // Both start with the sequence number; ack it like a real client would
+                int sequence = body.getInt();
+                c.channel.write(ByteBuffer.wrap(WireCodec.encodeAck(sequence)));
+                c.snapshots++;
+                c.lastSnapshotAt = System.currentTimeMillis();
+            }
+        }
+        buf.compact();
+    }
+}
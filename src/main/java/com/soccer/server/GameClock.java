@@ -0,0 +1,33 @@
+package com.soccer.server;
+
+import java.util.concurrent.locks.LockSupport;
+
+// Where the game loop gets the time from and how it waits for the next tick.
+// The simulation itself only counts ticks (simTime in GameRoom), the clock just decides
+// when a tick runs: SYSTEM paces the loop to the wall clock, a simulated clock jumps ahead
+// instead of sleeping, so a room runs as fast as the CPU allows (see HeadlessSimulation).
+public interface GameClock {
+    long nanoTime();
+
+    // Waits (or pretends to wait) this long
+    void sleepNanos(long nanos);
+
+    // A simulated room has nobody watching it, so it stops at the final whistle
+    default boolean isSimulated() { return false; }
+
+    GameClock SYSTEM = new GameClock() {
+        @Override public long nanoTime() { return System.nanoTime(); }
+        @Override public void sleepNanos(long nanos) { LockSupport.parkNanos(nanos); }
+    };
+
+    static GameClock simulated() { return new Simulated(); }
+
+    // Time only moves when the loop sleeps. One room per clock (not thread-safe).
+    class Simulated implements GameClock {
+        private long now = 0;
+
+        @Override public long nanoTime() { return now; }
+        @Override public void sleepNanos(long nanos) { if (nanos > 0) now += nanos; }
+        @Override public boolean isSimulated() { return true; }
+    }
+}
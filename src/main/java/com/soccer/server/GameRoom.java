@@ -3,40 +3,104 @@ package com.soccer.server;
 import com.soccer.common.Constants;
 import com.soccer.common.GameState;
 import com.soccer.common.InputPacket;
-
-import java.util.List;
-import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
-import java.util.stream.Collectors;
+import com.soccer.common.PlayerMovement;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 // This class is the engine of the game. It runs on the server and handles physics, AI, and game rules.
+//
+// Single writer: only the game thread ever changes the room. Network threads don't call into the
+// simulation, they post a Message (join, leave, start, end, approve, input) on 'inbox', and the
+// game thread applies all of them at the start of the next tick. No locks anywhere on the tick path.
 public class GameRoom implements Runnable {
-    private boolean isRunning = true;
+    // volatile: RoomRegistry stops the loop from another thread when the room is torn down
+    private volatile boolean isRunning = true;
+    // Live state, only ever touched by the game thread.
+    // The players and the ball live in 'world' (primitive arrays), gameState only holds
+    // the match info (phase, score, clock...). Both are combined when a snapshot is published.
+    private final PhysicsWorld world = new PhysicsWorld(32);
     private final GameState gameState = new GameState();
 
-    // Requirement (f): We are using a specific Lock interface (ReentrantLock)
-    // instead of the 'synchronized' keyword to manage thread safety manually.
-    private final Lock lock = new ReentrantLock();
-
-    // Thread-safe map to store player inputs coming from different clients
-    public ConcurrentHashMap<Integer, InputPacket> inputs = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<Integer, Long> kickCooldowns = new ConcurrentHashMap<>();
-
-    // Ball physics variables
-    private double ballVx = 0, ballVy = 0;
+    // The last finished tick, handed to the broadcaster through this one volatile field.
+    // Each one is a private copy taken at the end of a tick and never modified afterwards,
+    // so readers always see one consistent frame (ball and players from the same tick).
+    private volatile GameState published;
+    private int tickNumber = 0;
+
+    // One thing a network thread wants the game thread to do
+    private enum Kind { JOIN, LEAVE, COMMAND, INPUT }
+
+    private static final class Message {
+        final Kind kind;
+        final int playerId;
+        final String name;                       // JOIN
+        final InputPacket packet;                // COMMAND, INPUT
+        final CompletableFuture<String> result;  // JOIN: "OK" or the reason it was refused
+
+        Message(Kind kind, int playerId, String name, InputPacket packet, CompletableFuture<String> result) {
+            this.kind = kind;
+            this.playerId = playerId;
+            this.name = name;
+            this.packet = packet;
+            this.result = result;
+        }
+    }
 
-    // Timer variables
-    private long startTime = 0;
-    private long countdownStart;
-    private long totalPausedTime = 0;
+    // Requirement (f): thread safety without 'synchronized'. Fix: this used to be a ReentrantLock
+    // held for the whole tick, so every join/leave from a connection thread waited on the 60 Hz loop.
+    // Now it's a lock-free queue: any number of network threads add, only the game thread polls
+    // (multi-producer, single-consumer). Messages are applied in arrival order, so a quick tap of
+    // 'shoot' between two ticks is not overwritten by the release that follows it.
+    private final ConcurrentLinkedQueue<Message> inbox = new ConcurrentLinkedQueue<>();
+    // Game thread only: each player's inputs drained this tick, in sequence order, and who pressed
+    // shoot this tick. Every input is one tick of movement, the same step the client predicts with.
+    private final Map<Integer, ArrayDeque<InputPacket>> queuedInputs = new HashMap<>();
+    private final Set<Integer> shotsThisTick = new HashSet<>();
+    private final double[] moved = new double[4]; // PlayerMovement.step output
+
+    // Timer variables. All of them count simulated time (ticks * TICK_DT), never the wall clock,
+    // so a slow tick can't make the match clock or the countdown jump.
+    private double simTime = 0;          // seconds since the room was created
+    private double countdownRemaining;   // seconds left in the 3-2-1 countdown
+    private double matchSeconds = 0;     // real seconds played in this match
+    private double kickoffPause = 0;     // seconds left in the freeze after a goal
     private int lastTouchPlayerId = -1;
 
+    // Fixed timestep: the simulation always advances in steps of exactly TICK_DT seconds.
+    // -Dsoccer.tickRate changes the rate; the game plays at the same speed either way.
+    public static final int TICK_RATE = Integer.getInteger("soccer.tickRate", 60);
+    public static final double TICK_DT = 1.0 / TICK_RATE;
+    // If we fall further behind than this (GC pause, overloaded CPU), the missing time is dropped
+    // instead of running a burst of ticks that would make us fall behind even more
+    private static final int MAX_CATCH_UP_TICKS = 5;
+    private static final long BEHIND_WARNING_NANOS = 1_000_000_000L; // at most one "behind" message a second
+
     // Game settings
     private static final double VIRTUAL_TIME_MULTIPLIER = 10.0; // Game runs 10x faster than real life
-    private static final double PLAYER_SPEED_BASE = 3.0;
+    static final double PLAYER_SPEED_BASE = PlayerMovement.SPEED; // pixels per second (was 3 px per 60 Hz frame)
+    private static final double KICK_POWER = 600.0;        // ball speed after a kick, pixels per second
+    private static final double BALL_FRICTION = 0.98;      // ball speed kept per 1/60 s
+    private static final double KICK_COOLDOWN = 0.5;       // seconds between two kicks of one player
+    private static final double KICKOFF_PAUSE = 1.0;       // seconds everyone stands still after a goal
     private static final int MAX_PLAYERS = 22; // 11 vs 11
+    static final double KICK_RANGE = 30.0;                 // how close a player must be to kick the ball
+
+    // Spatial index over all players, rebuilt every tick (see SpatialGrid). Grid index == world slot.
+    private final SpatialGrid grid = new SpatialGrid(Constants.WIDTH, Constants.HEIGHT, 64);
+    private int[] nearby = new int[32];
+    private final Collisions collisions = new Collisions(grid);
+    private final BallPhysics ballPhysics = new BallPhysics(grid);
+    private final BotAi botAi = new BotAi(world, grid);
 
     // Formation positions relative to center field
     // Index 0 is the Goalkeeper
@@ -47,110 +111,144 @@ public class GameRoom implements Runnable {
             {-100, -50}, {-100, 50}                         // Strikers
     };
 
+    // Real time for the rooms players connect to, simulated for headless matches
+    private final GameClock clock;
+
+    // All randomness comes from here, never Math.random(): the room's stream is seeded, and every
+    // bot gets its own stream split off it when it is created. Same seed + same inputs = same match.
+    // -Dsoccer.seed fixes the seed, otherwise every room gets a new one (printed when recording).
+    public final long seed;
+    private final SplittableRandom random;
+    private final Map<Integer, SplittableRandom> botRandom = new HashMap<>();
+
+    // Set by record(): every event and a state hash per tick go to a replay file
+    private MatchRecorder recorder;
+
     public GameRoom() {
+        this(GameClock.SYSTEM, Long.getLong("soccer.seed", System.nanoTime()));
+    }
+
+    public GameRoom(GameClock clock, long seed) {
+        this.clock = clock;
+        this.seed = seed;
+        this.random = new SplittableRandom(seed);
         resetBall();
         // Fix: We forced the weather to be SUNNY because the rain effect was annoying.
         gameState.weather = "SUNNY";
+        publish();
     }
 
-    // Checks if a client is allowed to join (valid name, server not full)
-    public String checkJoinRequest(String name) {
-        lock.lock(); // Lock the room so we don't count players wrong
-        try {
-            long humanCount = gameState.players.stream().filter(p -> !p.isBot).count();
-            if (humanCount >= MAX_PLAYERS) return "Server is Full (Max " + MAX_PLAYERS + ")";
-
-            // Check for duplicate names
-            for (GameState.PlayerState p : gameState.players) {
-                if (!p.isBot && p.name.equalsIgnoreCase(name)) return "Name '" + name + "' is already taken!";
-            }
-            return "OK";
-        } finally {
-            lock.unlock(); // Always unlock in finally block
-        }
+    // Asks to join. The check (valid name, room not full) and adding the player happen together
+    // on the game thread, so two clients can't both take the last slot or the same name.
+    // Completes with "OK" or the reason the join was refused.
+    public CompletableFuture<String> requestJoin(int id, String name) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        inbox.add(new Message(Kind.JOIN, id, name, null, result));
+        return result;
     }
 
-    public void addPlayer(int id, String name) {
-        lock.lock();
-        try {
-            // Figure out which team needs a player (Red or Blue)
-            long redCount = gameState.players.stream().filter(p -> "RED".equals(p.team)).count();
-            long blueCount = gameState.players.stream().filter(p -> "BLUE".equals(p.team)).count();
-            String team = (redCount <= blueCount) ? "RED" : "BLUE";
+    // Queues a player leaving (called from network threads)
+    public void removePlayer(int id) {
+        inbox.add(new Message(Kind.LEAVE, id, null, null, null));
+    }
 
-            // Fix: Logic to kick out a Bot if a real Human joins
-            // We find a bot on the target team and remove it to make space
-            Optional<GameState.PlayerState> botToRemove = gameState.players.stream()
-                    .filter(p -> p.isBot && p.team.equals(team))
-                    .findFirst();
+    // Queues a player's keys (called from network threads)
+    public void submitInput(int playerId, InputPacket input) {
+        inbox.add(new Message(Kind.INPUT, playerId, null, input, null));
+    }
 
-            if (botToRemove.isPresent()) {
-                System.out.println("[Room] Replacing bot " + botToRemove.get().name + " with real player " + name);
-                gameState.players.remove(botToRemove.get());
-            }
+    // Queues a START/END/APPROVE command (called from network threads)
+    public void submitCommand(InputPacket command) {
+        inbox.add(new Message(Kind.COMMAND, 0, null, command, null));
+    }
 
-            // Add the real player
-            gameState.players.add(new GameState.PlayerState(id, name, team, 0, 0, false));
-            System.out.println("[Room] Player joined: " + name + " (" + id + ") Team: " + team);
+    // Quick guess from the last snapshot whether 'name' could join right now, for picking a room.
+    // It can be out of date by a tick; requestJoin gives the real answer.
+    public boolean looksJoinable(String name) {
+        int humans = 0;
+        for (GameState.PlayerState p : published.players) {
+            if (p.isBot) continue;
+            humans++;
+            if (p.name.equalsIgnoreCase(name)) return false;
+        }
+        return humans < MAX_PLAYERS;
+    }
 
-            // Fix: Immediately update positions.
-            // Without this, new players get stuck at (0,0) until the match starts.
-            resetPositions();
+    // Checks if a client is allowed to join (valid name, room not full)
+    private String checkJoinRequest(String name) {
+        if (world.countHumans() >= MAX_PLAYERS) return "Server is Full (Max " + MAX_PLAYERS + ")";
 
-        } finally {
-            lock.unlock();
+        // Check for duplicate names
+        for (int i = 0; i < world.count; i++) {
+            if (!world.bot[i] && world.name[i].equalsIgnoreCase(name)) return "Name '" + name + "' is already taken!";
         }
+        return "OK";
     }
 
-    public void removePlayer(int id) {
-        lock.lock();
-        try {
-            // Remove player from list and clear their inputs
-            gameState.players.removeIf(p -> p.id == id);
-            inputs.remove(id);
-            System.out.println("[Room] Player " + id + " left.");
-
-            // If everyone leaves (only bots left), reset the whole room
-            if (gameState.players.stream().noneMatch(p -> !p.isBot)) {
-                resetGameRoom();
+    private void addPlayer(int id, String name) {
+        // Figure out which team needs a player (Red or Blue)
+        byte team = world.countTeam(PhysicsWorld.RED) <= world.countTeam(PhysicsWorld.BLUE) ? PhysicsWorld.RED : PhysicsWorld.BLUE;
+
+        // Fix: Logic to kick out a Bot if a real Human joins
+        // We find a bot on the target team and remove it to make space
+        for (int i = 0; i < world.count; i++) {
+            if (world.bot[i] && world.team[i] == team) {
+                System.out.println("[Room] Replacing bot " + world.name[i] + " with real player " + name);
+                world.remove(i);
+                break;
             }
-        } finally {
-            lock.unlock();
         }
+
+        // Add the real player
+        world.add(id, name, team, false);
+        System.out.println("[Room] Player joined: " + name + " (" + id + ") Team: " + PhysicsWorld.teamName(team));
+
+        // Fix: Immediately update positions.
+        // Without this, new players get stuck at (0,0) until the match starts.
+        resetPositions();
     }
 
-    // Called when Admin clicks "Start Match"
-    public void startGame() {
-        lock.lock();
-        try {
-            // Fix: Allow Admin to restart the game if it is currently in GAME_OVER state
-            if (gameState.currentPhase == GameState.Phase.GAME_OVER) {
-                System.out.println("[Room] Admin requested restart. Resetting...");
-                resetGameRoom();
-            }
+    private void leave(int id) {
+        // Remove player from list and clear their inputs
+        int slot = world.slotOf(id);
+        if (slot < 0) return; // Never got in (the join was refused)
+        world.remove(slot);
+        queuedInputs.remove(id);
+        System.out.println("[Room] Player " + id + " left.");
+
+        // If everyone leaves (only bots left), reset the whole room
+        if (world.countHumans() == 0) {
+            resetGameRoom();
+        }
+    }
 
-            // Only start if we are currently waiting
-            if (gameState.currentPhase != GameState.Phase.WAITING) return;
-
-            System.out.println("[Room] Match Started!");
-
-            // 1. Remove old bots
-            gameState.players.removeIf(p -> p.isBot);
-            // 2. Add new bots to fill teams to 11
-            fillWithBots();
-            // 3. Move everyone to formation
-            resetPositions();
-            // 4. Start 3-second countdown
-            startCountdown();
-        } finally {
-            lock.unlock();
+    // Called when Admin clicks "Start Match"
+    private void startGame() {
+        // Fix: Allow Admin to restart the game if it is currently in GAME_OVER state
+        if (gameState.currentPhase == GameState.Phase.GAME_OVER) {
+            System.out.println("[Room] Admin requested restart. Resetting...");
+            resetGameRoom();
         }
+
+        // Only start if we are currently waiting
+        if (gameState.currentPhase != GameState.Phase.WAITING) return;
+
+        if (!clock.isSimulated()) System.out.println("[Room] Match Started!"); // Headless runs start thousands
+
+        // 1. Remove old bots
+        world.removeBots();
+        // 2. Add new bots to fill teams to 11
+        fillWithBots();
+        // 3. Move everyone to formation
+        resetPositions();
+        // 4. Start 3-second countdown
+        startCountdown();
     }
 
     // Resets the match state (score, time, ball)
     private void resetGameRoom() {
         gameState.currentPhase = GameState.Phase.WAITING;
-        gameState.players.removeIf(p -> p.isBot); // Kick all bots
+        world.removeBots(); // Kick all bots
         gameState.scoreRed = 0; gameState.scoreBlue = 0;
         gameState.timeString = "00:00"; gameState.winner = "";
 
@@ -158,261 +256,347 @@ public class GameRoom implements Runnable {
         gameState.weather = "SUNNY";
 
         resetBall();
-        inputs.clear();
-        kickCooldowns.clear();
+        queuedInputs.clear();
+        kickoffPause = 0;
     }
 
     // Fills empty slots with AI bots until we have 11 players per team
     private void fillWithBots() {
-        long redCount = gameState.players.stream().filter(p -> "RED".equals(p.team)).count();
-        long blueCount = gameState.players.stream().filter(p -> "BLUE".equals(p.team)).count();
-
         // Add Red bots
-        for (int i = (int) redCount; i < 11; i++)
-            gameState.players.add(new GameState.PlayerState(-100 - i, "Bot_R" + (i+1), "RED", 0, 0, true));
+        for (int i = world.countTeam(PhysicsWorld.RED); i < 11; i++) {
+            world.add(-100 - i, "Bot_R" + (i+1), PhysicsWorld.RED, true);
+            botRandom.put(-100 - i, random.split());
+        }
 
         // Add Blue bots
-        for (int i = (int) blueCount; i < 11; i++)
-            gameState.players.add(new GameState.PlayerState(-200 - i, "Bot_B" + (i+1), "BLUE", 0, 0, true));
+        for (int i = world.countTeam(PhysicsWorld.BLUE); i < 11; i++) {
+            world.add(-200 - i, "Bot_B" + (i+1), PhysicsWorld.BLUE, true);
+            botRandom.put(-200 - i, random.split());
+        }
     }
 
     private void resetPositions() {
         // Reset ball to center
         resetBall();
 
-        List<GameState.PlayerState> redTeam = gameState.players.stream().filter(p -> "RED".equals(p.team)).collect(Collectors.toList());
-        List<GameState.PlayerState> blueTeam = gameState.players.stream().filter(p -> "BLUE".equals(p.team)).collect(Collectors.toList());
-
-        // Sorting Logic: We put Bots first in the list so they get assigned the Goalkeeper spot (Index 0).
+        // Sorting Logic: We put Bots first so they get assigned the Goalkeeper spot (Index 0).
         // Humans get assigned field positions.
-        redTeam.sort((p1, p2) -> {
-            if (p1.isBot && !p2.isBot) return -1;
-            if (!p1.isBot && p2.isBot) return 1;
-            return 0;
-        });
-
-        blueTeam.sort((p1, p2) -> {
-            if (p1.isBot && !p2.isBot) return -1;
-            if (!p1.isBot && p2.isBot) return 1;
-            return 0;
-        });
+        assignTeamPositions(PhysicsWorld.RED);
+        assignTeamPositions(PhysicsWorld.BLUE);
+    }
 
-        // Assign coordinates based on formation array
-        for (int i = 0; i < redTeam.size(); i++) assignPos(redTeam.get(i), "RED", i);
-        for (int i = 0; i < blueTeam.size(); i++) assignPos(blueTeam.get(i), "BLUE", i);
+    private void assignTeamPositions(byte team) {
+        int index = 0;
+        for (int i = 0; i < world.count; i++) if (world.team[i] == team && world.bot[i]) assignPos(i, index++);
+        for (int i = 0; i < world.count; i++) if (world.team[i] == team && !world.bot[i]) assignPos(i, index++);
     }
 
     // Helper to calculate X/Y based on formation index
-    private void assignPos(GameState.PlayerState p, String team, int index) {
+    private void assignPos(int slot, int index) {
         int formIdx = index % FORMATION.length;
         double[] offset = FORMATION[formIdx];
         double cx = Constants.WIDTH / 2.0;
         double cy = Constants.HEIGHT / 2.0;
 
         // Red team on left, Blue team on right (mirrored)
-        if ("RED".equals(team)) { p.x = cx - offset[0]; p.y = cy + offset[1]; }
-        else { p.x = cx + offset[0]; p.y = cy + offset[1]; }
+        if (world.team[slot] == PhysicsWorld.RED) { world.x[slot] = cx - offset[0]; world.y[slot] = cy + offset[1]; }
+        else { world.x[slot] = cx + offset[0]; world.y[slot] = cy + offset[1]; }
 
-        p.startX = p.x; p.startY = p.y;
-        p.isGoalKeeper = (formIdx == 0); // First spot is GK
+        world.vx[slot] = 0; world.vy[slot] = 0;
+        world.startX[slot] = world.x[slot]; world.startY[slot] = world.y[slot];
+        world.goalkeeper[slot] = (formIdx == 0); // First spot is GK
+        world.version++;
     }
 
     // Main Game Loop
+    // Fixed timestep with an accumulator: real time (clock.nanoTime) piles up in 'accumulator'
+    // and is consumed in ticks of exactly TICK_DT. Sleep jitter only changes when a tick runs,
+    // never how far it moves things, so the game speed no longer depends on the load.
+    // With a simulated clock the sleep returns at once, so this becomes one tick per loop.
     @Override
     public void run() {
-        long lastTime = System.currentTimeMillis();
+        final long tickNanos = 1_000_000_000L / TICK_RATE;
+        long previous = clock.nanoTime();
+        long accumulator = 0;
+        long lastBehindWarning = previous - BEHIND_WARNING_NANOS;
+        int skipsSinceWarning = 0;
+        long droppedNanos = 0;
+
         while (isRunning) {
-            long now = System.currentTimeMillis();
-            double dt = (now - lastTime) / 1000.0; // Delta time in seconds
-            lastTime = now;
+            long now = clock.nanoTime();
+            accumulator += now - previous;
+            previous = now;
+
+            int steps = 0;
+            while (accumulator >= tickNanos && steps < MAX_CATCH_UP_TICKS) {
+                tick(TICK_DT);
+                accumulator -= tickNanos;
+                steps++;
+            }
+            if (accumulator >= tickNanos) {
+                // Fix: an overloaded server would print this every loop, so only once per second,
+                // with the total dropped since the last message
+                skipsSinceWarning++;
+                droppedNanos += accumulator;
+                if (now - lastBehindWarning >= BEHIND_WARNING_NANOS) {
+                    System.out.println("[Room] Tick loop fell behind " + skipsSinceWarning + "x, skipped "
+                            + (droppedNanos / 1_000_000) + " ms");
+                    lastBehindWarning = now;
+                    skipsSinceWarning = 0;
+                    droppedNanos = 0;
+                }
+                accumulator = 0;
+            }
 
-            // Handle commands like START/END/APPROVE
-            processSystemCommands();
+            // Sleep until the next tick is due
+            clock.sleepNanos(tickNanos - accumulator);
+        }
+
+        if (recorder != null) recorder.close();
+    }
 
-            if (gameState.currentPhase == GameState.Phase.COUNTDOWN) {
-                updateCountdown();
-            } else if (gameState.currentPhase == GameState.Phase.PLAYING) {
+    // One step of the simulation, dt is always TICK_DT.
+    // Everything network threads sent is applied first, so nothing changes halfway through a tick.
+    private void tick(double dt) {
+        simTime += dt;
+
+        // Joins, leaves, START/END/APPROVE and everything players sent since the last tick
+        drainInbox();
+
+        if (gameState.currentPhase == GameState.Phase.COUNTDOWN) {
+            updateCountdown(dt);
+        } else if (gameState.currentPhase == GameState.Phase.PLAYING) {
+            if (kickoffPause > 0) {
+                kickoffPause -= dt; // Everyone waits for the kick-off after a goal
+            } else {
                 updatePhysics(dt); // Move players
                 updateAI(dt);      // Move bots
-                updateTime();      // Update clock
+                resolveCollisions();
             }
-
-            // Cap at roughly 60 FPS
-            try { Thread.sleep(16); } catch (Exception e) {}
+            updateTime(dt);        // Update clock
         }
+
+        publish();
+        if (recorder != null) recorder.hash(tickNumber, stateHash());
     }
 
-    private void processSystemCommands() {
-        for (Integer id : inputs.keySet()) {
-            InputPacket pkt = inputs.get(id);
-            if (pkt == null) continue;
-            if ("START".equals(pkt.command)) { startGame(); inputs.remove(id); }
-            else if ("END".equals(pkt.command)) { finishGame(); inputs.remove(id); }
-            else if ("APPROVE".equals(pkt.command)) {
-                int targetId = pkt.targetIdToApprove;
-                for (GameState.PlayerState p : gameState.players) {
-                    if (p.id == targetId) p.isApproved = true;
-                }
-                inputs.remove(id);
-            }
-        }
+    // Runs exactly one tick, for replays (the room's own loop must not be running)
+    void step() {
+        tick(TICK_DT);
     }
 
-    // Handles movement for human players
-    private void updatePhysics(double dt) {
-        for (GameState.PlayerState p : gameState.players) {
-            if (p.isBot || !p.isApproved) continue;
-            InputPacket input = inputs.get(p.id);
-            if (input != null) {
-                double dx = 0, dy = 0;
-                if (input.up) dy = -1; if (input.down) dy = 1;
-                if (input.left) dx = -1; if (input.right) dx = 1;
-
-                // Normalize diagonal movement
-                if (dx != 0 || dy != 0) {
-                    double len = Math.sqrt(dx * dx + dy * dy);
-                    dx /= len; dy /= len;
-                }
+    int ticksDone() {
+        return tickNumber;
+    }
+
+    // Hash of the whole simulation state after the last tick: the world plus the match info
+    long stateHash() {
+        long h = world.hash();
+        h = PhysicsWorld.mix(h, gameState.currentPhase.ordinal());
+        h = PhysicsWorld.mix(h, gameState.scoreRed);
+        h = PhysicsWorld.mix(h, gameState.scoreBlue);
+        h = PhysicsWorld.mix(h, Double.doubleToLongBits(simTime));
+        h = PhysicsWorld.mix(h, Double.doubleToLongBits(matchSeconds));
+        h = PhysicsWorld.mix(h, Double.doubleToLongBits(countdownRemaining));
+        h = PhysicsWorld.mix(h, Double.doubleToLongBits(kickoffPause));
+        h = PhysicsWorld.mix(h, ballPhysics.kickerId);
+        return PhysicsWorld.mix(h, lastTouchPlayerId);
+    }
 
-                // Sprint check
-                double speed = input.sprint ? PLAYER_SPEED_BASE * 1.5 : PLAYER_SPEED_BASE;
-                p.x += dx * speed; p.y += dy * speed;
+    // Starts writing a replay of this room to 'file' (call before the room's thread starts)
+    public void record(Path file) throws IOException {
+        recorder = new MatchRecorder(file, seed);
+    }
 
-                // Keep player inside screen
-                p.x = Math.max(0, Math.min(Constants.WIDTH, p.x));
-                p.y = Math.max(0, Math.min(Constants.HEIGHT, p.y));
+    // Finishes the replay file now, for rooms driven with step() instead of run()
+    void stopRecording() {
+        if (recorder != null) recorder.close();
+        recorder = null;
+    }
 
-                if (input.shoot) kickBall(p);
+    // Builds the snapshot of the finished tick and swaps it in for the broadcaster.
+    // This is the only place PlayerState objects are created on the server.
+    // The tick number doubles as the snapshot sequence (the delta baseline id).
+    private void publish() {
+        GameState snapshot = gameState.copy(); // Match info only, the players are in 'world'
+        snapshot.sequence = ++tickNumber;
+        snapshot.ballX = world.ballX;
+        snapshot.ballY = world.ballY;
+        snapshot.players = new CopyOnWriteArrayList<>(world.toPlayerStates());
+        published = snapshot;
+    }
+
+    // Applies every queued message in arrival order (the only place the inbox is read).
+    // Runs in every phase so the inbox never piles up.
+    private void drainInbox() {
+        shotsThisTick.clear();
+        // Inputs nobody moved with (countdown, kick-off pause) are not saved up for later
+        for (ArrayDeque<InputPacket> queue : queuedInputs.values()) queue.clear();
+        Message m;
+        while ((m = inbox.poll()) != null) {
+            switch (m.kind) {
+                case JOIN -> {
+                    if (recorder != null) recorder.join(tickNumber, m.playerId, m.name);
+                    String check = checkJoinRequest(m.name);
+                    if ("OK".equals(check)) addPlayer(m.playerId, m.name);
+                    m.result.complete(check);
+                }
+                case LEAVE -> {
+                    if (recorder != null) recorder.leave(tickNumber, m.playerId);
+                    leave(m.playerId);
+                }
+                case COMMAND -> {
+                    if (recorder != null) recorder.command(tickNumber, m.packet);
+                    applyCommand(m.packet);
+                }
+                case INPUT -> {
+                    if (recorder != null) recorder.input(tickNumber, m.playerId, m.packet);
+                    applyInput(m.playerId, m.packet);
+                }
             }
         }
+    }
+
+    private void applyCommand(InputPacket pkt) {
+        if ("START".equals(pkt.command)) startGame();
+        else if ("END".equals(pkt.command)) finishGame();
+        else if ("APPROVE".equals(pkt.command)) {
+            int slot = world.slotOf(pkt.targetIdToApprove);
+            if (slot >= 0) world.approved[slot] = true;
+        }
+    }
 
-        // Ball friction and bounce logic
-        gameState.ballX += ballVx; gameState.ballY += ballVy;
-        ballVx *= 0.98; ballVy *= 0.98;
-        if (gameState.ballY <= 0 || gameState.ballY >= Constants.HEIGHT) ballVy = -ballVy;
-        if (gameState.ballX <= 0 || gameState.ballX >= Constants.WIDTH) ballVx = -ballVx;
+    // Inputs come in sequence order. Each one is queued for its own movement step this tick, any
+    // 'shoot' among them counts as a kick this tick, and lastProcessedInput tells the client what we have seen.
+    private void applyInput(int id, InputPacket input) {
+        int i = world.slotOf(id);
+        if (i < 0 || world.bot[i]) return; // Not (or no longer) in this room: ignore
 
-        checkGoal();
+        // Sequence 0 means the sender doesn't number its inputs
+        if (input.sequence != 0) {
+            if (input.sequence <= world.lastInput[i]) return; // Repeated or late (UDP)
+            world.lastInput[i] = input.sequence;
+        }
+        if (input.shoot) shotsThisTick.add(id);
+        queuedInputs.computeIfAbsent(id, k -> new ArrayDeque<>()).addLast(input);
     }
 
-    private void updateAI(double dt) {
-        // Requirement (g): Using parallelStream here allows us to calculate AI logic
-        // for multiple bots simultaneously using different CPU cores.
-        gameState.players.parallelStream()
-                .filter(p -> p.isBot)
-                .forEach(p -> calculateSingleBotLogic(p));
-    }
-
-    // The brain of the Bot
-    private void calculateSingleBotLogic(GameState.PlayerState p) {
-        double targetX = p.startX, targetY = p.startY;
-        double distToBall = Math.hypot(p.x - gameState.ballX, p.y - gameState.ballY);
-
-        // Goalkeeper logic: stay near goal unless ball is close
-        if (p.isGoalKeeper) {
-            if (distToBall < 150 && Math.abs(p.x - p.startX) < 120) {
-                targetX = gameState.ballX; targetY = gameState.ballY;
-            } else {
-                targetX = p.startX;
-                targetY = Math.max(Constants.HEIGHT/2.0 - 50, Math.min(Constants.HEIGHT/2.0 + 50, gameState.ballY));
-            }
-        } else {
-            // Field player logic: Chase ball if close, otherwise stay in formation
-            if (distToBall < 250) {
-                targetX = gameState.ballX; targetY = gameState.ballY;
-            } else {
-                // Move slightly towards ball even if far away
-                targetX = p.startX + (gameState.ballX - p.startX) * 0.2;
-                targetY = p.startY + (gameState.ballY - p.startY) * 0.2;
+    // Handles movement for human players
+    private void updatePhysics(double dt) {
+        PhysicsWorld w = world;
+        for (int i = 0; i < w.count; i++) {
+            if (w.bot[i] || !w.approved[i]) continue;
+            ArrayDeque<InputPacket> inputs = queuedInputs.get(w.id[i]);
+            w.vx[i] = 0; w.vy[i] = 0; // No input this tick: standing still
+            if (inputs == null) continue;
+
+            // One step per input, in order, with the same rules the client uses to predict
+            // its own player (see PlayerMovement). Inputs that bunched up are all applied now.
+            for (InputPacket input : inputs) {
+                PlayerMovement.step(input, w.x[i], w.y[i], dt, moved);
+                w.x[i] = moved[0]; w.y[i] = moved[1];
+                w.vx[i] = moved[2]; w.vy[i] = moved[3];
             }
+            inputs.clear();
         }
 
-        // Move the bot
-        double dx = targetX - p.x, dy = targetY - p.y;
-        double dist = Math.hypot(dx, dy);
-        if (dist > 5) {
-            double speed = PLAYER_SPEED_BASE * 0.95;
-            if (distToBall < 250) speed *= 1.2; // Sprint if chasing ball
-            p.x += (dx / dist) * speed; p.y += (dy / dist) * speed;
+        // Kicks: only the players the grid finds around the ball can reach it
+        rebuildGrid();
+        int found = grid.queryRadius(w.ballX, w.ballY, KICK_RANGE, nearby);
+        for (int k = 0; k < found; k++) {
+            int i = nearby[k];
+            if (w.bot[i] || !w.approved[i]) continue;
+            if (shotsThisTick.contains(w.id[i])) kickBall(i);
         }
 
-        // Bot shooting logic
-        if (distToBall < 20) {
-            double goalX = "RED".equals(p.team) ? Constants.WIDTH : 0;
-            double angle = Math.atan2((Constants.HEIGHT / 2.0) + (Math.random()-0.5)*80 - p.y, goalX - p.x);
-            double power = 7.0 + Math.random() * 3.0;
+        // Ball movement is swept (see BallPhysics), so a fast ball can't skip the goal line or a player
+        int goal = ballPhysics.move(w, dt);
+        if (ballPhysics.toucher >= 0) lastTouchPlayerId = w.id[ballPhysics.toucher];
+        double friction = Math.pow(BALL_FRICTION, dt * 60);
+        w.ballVx *= friction; w.ballVy *= friction;
 
-            // Sync needed here because we are writing to shared ball variables
-            synchronized(this) {
-                ballVx = Math.cos(angle) * power; ballVy = Math.sin(angle) * power;
-                lastTouchPlayerId = p.id;
-            }
-        }
+        if (goal != BallPhysics.NO_GOAL) scoreGoal(goal);
     }
 
-    // Handles kicking the ball
-    private void kickBall(GameState.PlayerState p) {
-        long now = System.currentTimeMillis();
-        // Simple cooldown so you can't kick 60 times a second
-        if (kickCooldowns.containsKey(p.id) && now - kickCooldowns.get(p.id) < 500) return;
-
-        double dist = Math.hypot(p.x - gameState.ballX, p.y - gameState.ballY);
-        if (dist < 30) {
-            double angle = Math.atan2(gameState.ballY - p.y, gameState.ballX - p.x);
-            double power = 10.0;
-            ballVx = Math.cos(angle) * power; ballVy = Math.sin(angle) * power;
-            lastTouchPlayerId = p.id;
-            kickCooldowns.put(p.id, now);
-        }
+    // Bots decide near the ball every tick and far from it every few ticks (see BotAi).
+    // Kicking the ball is done afterwards on the game thread, one shooter at a time.
+    private void updateAI(double dt) {
+        int shooters = botAi.update(tickNumber, dt, nearby);
+        for (int k = 0; k < shooters; k++) botShoot(nearby[k]);
     }
 
-    // Checks if the ball went into the goal
-    private void checkGoal() {
-        double goalTop = (Constants.HEIGHT / 2.0) - (Constants.GOAL_SIZE / 2.0);
-        double goalBottom = (Constants.HEIGHT / 2.0) + (Constants.GOAL_SIZE / 2.0);
-        boolean isGoal = false;
+    // Players can't run through each other or the ball any more (see Collisions).
+    // A ball that bounces off someone counts as their touch for the goal credit.
+    private void resolveCollisions() {
+        int toucher = collisions.resolve(world);
+        if (toucher >= 0) lastTouchPlayerId = world.id[toucher];
+    }
 
-        if (gameState.ballY > goalTop && gameState.ballY < goalBottom) {
-            if (gameState.ballX < 5) {
-                gameState.scoreBlue++; isGoal = true;
-            } else if (gameState.ballX > Constants.WIDTH - 5) {
-                gameState.scoreRed++; isGoal = true;
-            }
-        }
+    // Re-buckets the players. The grid reads the world's x/y arrays directly, no copying.
+    private void rebuildGrid() {
+        if (nearby.length < world.count) nearby = new int[world.count * 2];
+        grid.rebuild(world.x, world.y, world.count);
+    }
 
-        if (isGoal) {
-            // Award goal to player
-            if (lastTouchPlayerId != -1) {
-                for(GameState.PlayerState p : gameState.players) if (p.id == lastTouchPlayerId) p.goals++;
-            }
-            // Reset for kick-off
-            resetPositions();
-            try { Thread.sleep(1000); } catch(Exception e){}
-        }
+    // Bot shooting logic: aim at the opponent's goal with a bit of randomness
+    private void botShoot(int i) {
+        double goalX = world.team[i] == PhysicsWorld.RED ? Constants.WIDTH : 0;
+        SplittableRandom r = botRandom.get(world.id[i]);
+        double angle = Math.atan2((Constants.HEIGHT / 2.0) + (r.nextDouble()-0.5)*80 - world.y[i], goalX - world.x[i]);
+        double power = KICK_POWER * (0.7 + r.nextDouble() * 0.3);
+        world.ballVx = Math.cos(angle) * power; world.ballVy = Math.sin(angle) * power;
+        lastTouchPlayerId = world.id[i];
+        ballPhysics.kickerId = world.id[i];
+    }
+
+    // Handles kicking the ball. The caller already checked (with the grid) that slot i is within KICK_RANGE.
+    private void kickBall(int i) {
+        // Simple cooldown so you can't kick 60 times a second
+        if (simTime - world.lastKickTime[i] < KICK_COOLDOWN) return;
+
+        double angle = Math.atan2(world.ballY - world.y[i], world.ballX - world.x[i]);
+        world.ballVx = Math.cos(angle) * KICK_POWER; world.ballVy = Math.sin(angle) * KICK_POWER;
+        lastTouchPlayerId = world.id[i];
+        ballPhysics.kickerId = world.id[i];
+        world.lastKickTime[i] = simTime;
+    }
+
+    // The ball crossed a goal line between the posts (BallPhysics found where)
+    private void scoreGoal(int goal) {
+        if (goal == BallPhysics.GOAL_LEFT) gameState.scoreBlue++;
+        else gameState.scoreRed++;
+
+        // Award goal to player
+        int scorer = world.slotOf(lastTouchPlayerId);
+        if (scorer >= 0) world.goals[scorer]++;
+        // Reset for kick-off. Fix: this used to Thread.sleep(1000) and freeze the whole room,
+        // now the loop keeps ticking and only the players and ball wait.
+        resetPositions();
+        kickoffPause = KICKOFF_PAUSE;
     }
 
-    private void resetBall() { gameState.ballX = Constants.WIDTH / 2.0; gameState.ballY = Constants.HEIGHT / 2.0; ballVx = 0; ballVy = 0; }
+    private void resetBall() { world.ballX = Constants.WIDTH / 2.0; world.ballY = Constants.HEIGHT / 2.0; world.ballVx = 0; world.ballVy = 0; }
 
     private void startCountdown() {
         gameState.currentPhase = GameState.Phase.COUNTDOWN;
         gameState.countdownValue = 3;
-        countdownStart = System.currentTimeMillis();
+        countdownRemaining = 3.0;
     }
 
-    private void updateCountdown() {
-        long diff = System.currentTimeMillis() - countdownStart;
-        gameState.countdownValue = 3 - (int)(diff/1000);
+    private void updateCountdown(double dt) {
+        countdownRemaining -= dt;
+        gameState.countdownValue = (int) Math.ceil(countdownRemaining);
         if (gameState.countdownValue <= 0) {
             gameState.currentPhase = GameState.Phase.PLAYING;
-            startTime = System.currentTimeMillis();
-            totalPausedTime = 0;
+            matchSeconds = 0;
+            kickoffPause = 0;
         }
     }
 
     // Fix: We now stop the game exactly at 90 minutes. No auto-restart.
-    private void updateTime() {
-        long elapsed = System.currentTimeMillis() - startTime - totalPausedTime;
-        double virtualSeconds = (elapsed / 1000.0) * VIRTUAL_TIME_MULTIPLIER;
+    private void updateTime(double dt) {
+        matchSeconds += dt;
+        double virtualSeconds = matchSeconds * VIRTUAL_TIME_MULTIPLIER;
         int totalSec = (int) virtualSeconds;
         int mm = totalSec / 60;
         int ss = totalSec % 60;
@@ -427,9 +611,16 @@ public class GameRoom implements Runnable {
         else if (gameState.scoreBlue > gameState.scoreRed) gameState.winner = "BLUE TEAM";
         else gameState.winner = "DRAW";
 
+        // Nobody restarts a headless match, so its loop ends here (the last snapshot shows the result)
+        if (clock.isSimulated()) isRunning = false;
+
         // Save to DB (Optional)
         // DatabaseManager.saveMatch(gameState.winner, gameState.scoreRed, gameState.scoreBlue);
     }
 
-    public GameState getGameState() { return gameState; }
+    // Latest consistent snapshot. Never modify it, it is shared with everybody who reads it.
+    public GameState getLatestSnapshot() { return published; }
+
+    // Ends the game loop (the room is being closed)
+    public void stop() { isRunning = false; }
 }
\ No newline at end of file
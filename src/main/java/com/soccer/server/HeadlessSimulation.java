@@ -0,0 +1,88 @@
+package com.soccer.server;
+
+import com.soccer.common.GameState;
+import com.soccer.common.InputPacket;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Plays full bot-vs-bot matches with no sockets and no sleeping: each match is a GameRoom on a
+// simulated clock, so it runs as fast as the CPU allows (a 90 minute match is 9 minutes of
+// simulated time). Several matches run at once, one per core.
+// Good for load testing, tuning the AI (do the bots still score?) and checking that a change
+// didn't shift the results.
+//
+// Match m uses seed base + m, so a run with the same -Dsoccer.seed plays out exactly the same.
+// -Dsoccer.record=<dir> saves a replay of every match there (check it with ReplayVerifier).
+//
+// Usage: HeadlessSimulation [matches] [threads]
+public class HeadlessSimulation {
+    private static final String RECORD_DIR = System.getProperty("soccer.record");
+
+    public static void main(String[] args) throws Exception {
+        int matches = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        long baseSeed = Long.getLong("soccer.seed", System.nanoTime());
+
+        System.out.println("Simulating " + matches + " matches on " + threads + " threads at " + GameRoom.TICK_RATE + " ticks/s (-Dsoccer.seed=" + baseSeed + ")...");
+        // So two runs can be compared (e.g. -Dsoccer.ai.parallel=true against the default)
+        System.out.println("Bot AI: " + (BotAi.PARALLEL ? "parallel stream per room" : "sequential on each room's thread")
+                + ", far bots decide every " + BotAi.FAR_INTERVAL + " ticks");
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+
+        List<Future<GameState>> results = new ArrayList<>();
+        for (int m = 0; m < matches; m++) {
+            long seed = baseSeed + m;
+            results.add(pool.submit(() -> playMatch(seed)));
+        }
+
+        int redWins = 0, blueWins = 0, draws = 0, goals = 0;
+        long ticks = 0;
+        Map<Integer, Integer> goalsPerMatch = new TreeMap<>();
+        Map<String, Integer> scorelines = new TreeMap<>();
+        for (Future<GameState> f : results) {
+            GameState end = f.get();
+            if (end.scoreRed > end.scoreBlue) redWins++;
+            else if (end.scoreBlue > end.scoreRed) blueWins++;
+            else draws++;
+            int total = end.scoreRed + end.scoreBlue;
+            goals += total;
+            ticks += end.sequence;
+            goalsPerMatch.merge(total, 1, Integer::sum);
+            scorelines.merge(end.scoreRed + "-" + end.scoreBlue, 1, Integer::sum);
+        }
+        pool.shutdown();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("Done in %.2f s: %.2f matches/s, %.0f ticks/s%n", seconds, matches / seconds, ticks / seconds);
+        System.out.printf("Red wins %d (%.0f%%), Blue wins %d (%.0f%%), Draws %d (%.0f%%)%n",
+                redWins, 100.0 * redWins / matches, blueWins, 100.0 * blueWins / matches, draws, 100.0 * draws / matches);
+        System.out.printf("Goals per match: %.2f on average%n", goals / (double) matches);
+        for (Map.Entry<Integer, Integer> e : goalsPerMatch.entrySet()) {
+            System.out.printf("  %2d goals: %s %d%n", e.getKey(), "#".repeat(Math.max(1, 40 * e.getValue() / matches)), e.getValue());
+        }
+        System.out.println("Scorelines (Red-Blue): " + scorelines);
+    }
+
+    // One whole match on the calling thread, returns the final snapshot
+    private static GameState playMatch(long seed) throws IOException {
+        GameRoom room = new GameRoom(GameClock.simulated(), seed);
+        if (RECORD_DIR != null) room.record(Paths.get(RECORD_DIR, "headless-" + seed + ".replay"));
+
+        // No humans: both teams are all bots. Sent like the admin's button so it is in the replay.
+        InputPacket start = new InputPacket();
+        start.command = "START";
+        room.submitCommand(start);
+        room.run(); // Returns at the final whistle
+        return room.getLatestSnapshot();
+    }
+}
@@ -0,0 +1,100 @@
+package com.soccer.server;
+
+import com.soccer.common.InputPacket;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Writes everything that went into a room, plus a hash of the state after every tick, so
+// ReplayVerifier can play the match again and check that it comes out the same.
+// A room is deterministic given its seed and these events, so this is all a replay needs.
+//
+// One text line per event. <tick> is the number of ticks finished when the event was applied,
+// i.e. it belongs before/into tick <tick> + 1:
+//   SEED <seed> <tickRate>
+//   J <tick> <id> [<name>]            player asked to join (name is the rest of the line;
+//                                     no name field at all means the name was null)
+//   L <tick> <id>                     player left
+//   C <tick> <command> <targetId>     START / END / APPROVE
+//   I <tick> <id> <sequence> <keys>   one input as it was drained (keys: see keyBits)
+//   H <tick> <hash>                   state hash after the tick
+//
+// Only used from the game thread. Writing errors are printed once and
+// stop the recording, they never take the room down.
+public class MatchRecorder {
+    public static final int KEY_UP = 1, KEY_DOWN = 1 << 1, KEY_LEFT = 1 << 2, KEY_RIGHT = 1 << 3;
+    public static final int KEY_SHOOT = 1 << 4, KEY_SPRINT = 1 << 5;
+
+    private final Path file;
+    private BufferedWriter out;
+
+    public MatchRecorder(Path file, long seed) throws IOException {
+        this.file = file;
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) Files.createDirectories(dir);
+        this.out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        write("SEED " + seed + " " + GameRoom.TICK_RATE);
+    }
+
+    public void join(int tick, int id, String name) {
+        // Fix: a null name was written as the text "null", and the replay renamed the player to that
+        write(name == null ? "J " + tick + " " + id : "J " + tick + " " + id + " " + name);
+    }
+
+    public void leave(int tick, int id) { write("L " + tick + " " + id); }
+
+    public void command(int tick, InputPacket pkt) { write("C " + tick + " " + pkt.command + " " + pkt.targetIdToApprove); }
+
+    public void input(int tick, int id, InputPacket pkt) { write("I " + tick + " " + id + " " + pkt.sequence + " " + keyBits(pkt)); }
+
+    public void hash(int tick, long hash) { write("H " + tick + " " + Long.toHexString(hash)); }
+
+    public void close() {
+        if (out == null) return;
+        try {
+            out.close();
+            System.out.println("[Replay] Saved " + file);
+        } catch (IOException e) {
+            System.out.println("[Replay] Could not save " + file + ": " + e.getMessage());
+        }
+        out = null;
+    }
+
+    public static int keyBits(InputPacket p) {
+        int keys = 0;
+        if (p.up) keys |= KEY_UP;
+        if (p.down) keys |= KEY_DOWN;
+        if (p.left) keys |= KEY_LEFT;
+        if (p.right) keys |= KEY_RIGHT;
+        if (p.shoot) keys |= KEY_SHOOT;
+        if (p.sprint) keys |= KEY_SPRINT;
+        return keys;
+    }
+
+    public static InputPacket fromKeyBits(int sequence, int keys) {
+        InputPacket p = new InputPacket();
+        p.sequence = sequence;
+        p.up = (keys & KEY_UP) != 0;
+        p.down = (keys & KEY_DOWN) != 0;
+        p.left = (keys & KEY_LEFT) != 0;
+        p.right = (keys & KEY_RIGHT) != 0;
+        p.shoot = (keys & KEY_SHOOT) != 0;
+        p.sprint = (keys & KEY_SPRINT) != 0;
+        return p;
+    }
+
+    private void write(String line) {
+        if (out == null) return;
+        try {
+            out.write(line);
+            out.newLine();
+        } catch (IOException e) {
+            System.out.println("[Replay] Recording to " + file + " stopped: " + e.getMessage());
+            try { out.close(); } catch (IOException ignored) { }
+            out = null;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.soccer.server;
+
+import com.soccer.common.WireCodec;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Non-blocking server: ONE thread accepts, reads and writes for every socket using a Selector.
+// This replaces "one blocking thread per client", so the number of connections is no longer
+// limited by the size of a thread pool. Players, spectators and the admin all go through here.
+public class NioServer implements Runnable {
+    private static final int INITIAL_READ_BUFFER = 4 * 1024;
+
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+
+    // Connections that queued output from another thread (the broadcaster).
+    // Only the selector thread may change interest ops, so we hand them over through this queue.
+    private final Queue<NioConnection> writeRequests = new ConcurrentLinkedQueue<>();
+
+    public NioServer(int port) throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    @Override
+    public void run() {
+        System.out.println("Waiting for connections (NIO)...");
+        while (serverChannel.isOpen()) {
+            try {
+                selector.select();
+
+                // Turn on OP_WRITE for everyone who has something new to send
+                NioConnection pending;
+                while ((pending = writeRequests.poll()) != null) {
+                    pending.writeRequested.set(false);
+                    // Other threads close connections too (broadcaster, game thread), so the key
+                    // can be cancelled between isValid() and interestOps(); that client is gone anyway
+                    try {
+                        if (pending.key.isValid()) pending.key.interestOps(pending.key.interestOps() | SelectionKey.OP_WRITE);
+                    } catch (CancelledKeyException ignored) {}
+                }
+
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid()) continue;
+
+                    if (key.isAcceptable()) accept();
+                    else {
+                        NioConnection conn = (NioConnection) key.attachment();
+                        try {
+                            if (key.isReadable()) conn.onReadable();
+                            if (key.isValid() && key.isWritable()) conn.onWritable();
+                        } catch (IOException e) {
+                            // Client closed the window or the connection broke
+                            conn.close();
+                        } catch (RuntimeException e) {
+                            // Fix: a bug or a bad frame in one connection used to escape run() and stop
+                            // the only selector thread, i.e. the whole server. Now only that client goes.
+                            System.out.println("[Net] Dropping client " + conn.playerId + ": " + e);
+                            conn.close();
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) return;
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true); // Small frames, send them right away
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        key.attach(new NioConnection(channel, key));
+    }
+
+    public void close() {
+        try { serverChannel.close(); } catch (IOException e) {}
+        selector.wakeup();
+    }
+
+    // One client socket handled by the selector thread
+    private class NioConnection extends ClientConnection {
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_READ_BUFFER);
+
+        // The frame currently being written (the socket may take it in several pieces)
+        private ByteBuffer writing;
+        private final AtomicBoolean writeRequested = new AtomicBoolean(false);
+        private final AtomicBoolean isClosing = new AtomicBoolean(false);
+
+        NioConnection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+
+        @Override
+        protected void onFrameQueued() {
+            // Only wake the selector once per batch of sends
+            if (writeRequested.compareAndSet(false, true)) {
+                writeRequests.add(this);
+                selector.wakeup();
+            }
+        }
+
+        void onReadable() throws IOException {
+            if (channel.read(readBuffer) < 0) throw new IOException("End of stream");
+            readBuffer.flip();
+
+            // Cut out every complete frame we have: [int length][body]
+            while (readBuffer.remaining() >= 4) {
+                int length = readBuffer.getInt(readBuffer.position());
+                if (length < 2 || length > WireCodec.MAX_FRAME) throw new IOException("Bad frame length: " + length);
+                if (readBuffer.remaining() < 4 + length) break;
+
+                readBuffer.position(readBuffer.position() + 4);
+                byte[] body = new byte[length];
+                readBuffer.get(body);
+                if (!ServerMain.handleFrame(this, ByteBuffer.wrap(body))) {
+                    closeAfterSending();
+                    return;
+                }
+            }
+            readBuffer.compact();
+
+            // A frame bigger than our buffer: grow it (up to MAX_FRAME)
+            if (!readBuffer.hasRemaining()) {
+                ByteBuffer bigger = ByteBuffer.allocate(Math.min(readBuffer.capacity() * 2, WireCodec.MAX_FRAME + 4));
+                readBuffer.flip();
+                bigger.put(readBuffer);
+                readBuffer = bigger;
+            }
+        }
+
+        void onWritable() throws IOException {
+            while (true) {
+                if (writing == null) {
+                    byte[] frame = pollFrame();
+                    if (frame == null) break;
+                    // Wrapping does not copy, the shared frame bytes are only read
+                    writing = ByteBuffer.wrap(frame);
+                }
+                channel.write(writing);
+                if (writing.hasRemaining()) return; // Socket buffer full, wait for the next OP_WRITE
+                writing = null;
+            }
+            if (closeWhenDrained) {
+                close();
+                return;
+            }
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+            // A sender may have queued a frame between our last poll and clearing OP_WRITE
+            if (hasQueuedFrames()) key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+        }
+
+        @Override
+        public void close() {
+            if (!isClosing.compareAndSet(false, true)) return;
+            closed = true;
+            key.cancel();
+            try { channel.close(); } catch (IOException e) {}
+            clearQueue();
+            ServerMain.onDisconnect(this);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.soccer.server;
+
+import com.soccer.common.GameState;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+// The simulation state of one room, laid out as parallel primitive arrays ("structure of arrays").
+// Slot i is one player: x[i], y[i], team[i], ... Physics and AI loop over these arrays instead of
+// walking a list of PlayerState objects, and teams are bytes instead of "RED"/"BLUE" strings.
+// PlayerState objects are only created when a snapshot is built (see toPlayerStates).
+//
+// Slots stay in join order (removing shifts the ones after it down), so the roster order in
+// snapshots doesn't jump around and deltas can keep using D_SAME_ROSTER.
+// Not thread-safe: only GameRoom's game thread touches it.
+public class PhysicsWorld {
+    // Same order as GameState.Team, so the byte is also the wire index
+    public static final byte RED = 0;
+    public static final byte BLUE = 1;
+    private static final GameState.Team[] TEAMS = GameState.Team.values();
+
+    public int count = 0;
+    // Bumped whenever slots move or formation spots change, so per-slot caches (BotAi) know to refresh
+    public int version = 0;
+
+    public int[] id;
+    public String[] name;
+    public byte[] team;
+    public boolean[] bot;
+    public boolean[] approved;
+    public boolean[] goalkeeper;
+    public double[] x, y;           // position (px)
+    public double[] vx, vy;         // velocity during the last tick (px/s)
+    public double[] startX, startY; // formation spot
+    public double[] stamina;
+    public int[] goals;
+    public int[] lastInput;         // sequence of the newest input applied (humans)
+    public double[] lastKickTime;   // simulation time of the last kick, for the cooldown
+
+    // The ball (px and px/s)
+    public double ballX, ballY, ballVx, ballVy;
+
+    public PhysicsWorld(int initialCapacity) {
+        allocate(Math.max(1, initialCapacity));
+    }
+
+    // Adds a player at the end and returns its slot
+    public int add(int playerId, String playerName, byte playerTeam, boolean isBot) {
+        if (count == id.length) grow();
+        version++;
+        int i = count++;
+        id[i] = playerId;
+        name[i] = playerName;
+        team[i] = playerTeam;
+        bot[i] = isBot;
+        approved[i] = isBot; // Bots are automatically approved to play; Humans must wait for Admin
+        goalkeeper[i] = false;
+        x[i] = 0; y[i] = 0; vx[i] = 0; vy[i] = 0;
+        startX[i] = 0; startY[i] = 0;
+        stamina[i] = 100.0;
+        goals[i] = 0;
+        lastInput[i] = 0;
+        lastKickTime[i] = Double.NEGATIVE_INFINITY;
+        return i;
+    }
+
+    // Removes slot i, the slots after it move down by one
+    public void remove(int i) {
+        version++;
+        int tail = count - i - 1;
+        if (tail > 0) {
+            System.arraycopy(id, i + 1, id, i, tail);
+            System.arraycopy(name, i + 1, name, i, tail);
+            System.arraycopy(team, i + 1, team, i, tail);
+            System.arraycopy(bot, i + 1, bot, i, tail);
+            System.arraycopy(approved, i + 1, approved, i, tail);
+            System.arraycopy(goalkeeper, i + 1, goalkeeper, i, tail);
+            System.arraycopy(x, i + 1, x, i, tail);
+            System.arraycopy(y, i + 1, y, i, tail);
+            System.arraycopy(vx, i + 1, vx, i, tail);
+            System.arraycopy(vy, i + 1, vy, i, tail);
+            System.arraycopy(startX, i + 1, startX, i, tail);
+            System.arraycopy(startY, i + 1, startY, i, tail);
+            System.arraycopy(stamina, i + 1, stamina, i, tail);
+            System.arraycopy(goals, i + 1, goals, i, tail);
+            System.arraycopy(lastInput, i + 1, lastInput, i, tail);
+            System.arraycopy(lastKickTime, i + 1, lastKickTime, i, tail);
+        }
+        count--;
+        name[count] = null;
+    }
+
+    public void removeBots() {
+        for (int i = count - 1; i >= 0; i--) if (bot[i]) remove(i);
+    }
+
+    // Slot of a player id, or -1
+    public int slotOf(int playerId) {
+        for (int i = 0; i < count; i++) if (id[i] == playerId) return i;
+        return -1;
+    }
+
+    public int countTeam(byte t) {
+        int n = 0;
+        for (int i = 0; i < count; i++) if (team[i] == t) n++;
+        return n;
+    }
+
+    public int countHumans() {
+        int n = 0;
+        for (int i = 0; i < count; i++) if (!bot[i]) n++;
+        return n;
+    }
+
+    public static String teamName(byte t) {
+        return TEAMS[t].name();
+    }
+
+    // Builds the PlayerState objects for a snapshot (fresh objects, nobody else holds them)
+    public GameState.PlayerState[] toPlayerStates() {
+        GameState.PlayerState[] players = new GameState.PlayerState[count];
+        for (int i = 0; i < count; i++) {
+            GameState.PlayerState p = new GameState.PlayerState(id[i], name[i], teamName(team[i]), x[i], y[i], bot[i]);
+            p.startX = startX[i]; p.startY = startY[i];
+            p.isApproved = approved[i];
+            p.isGoalKeeper = goalkeeper[i];
+            p.stamina = stamina[i];
+            p.goals = goals[i];
+            p.lastProcessedInput = lastInput[i];
+            players[i] = p;
+        }
+        return players;
+    }
+
+    // Hash of the world arrays and the ball, bit for bit (doubles by their bits).
+    // Two worlds with the same hash are, for all practical purposes, the same (see ReplayVerifier).
+    // State kept outside the world (BallPhysics.kickerId, GameRoom's clocks) is added by
+    // GameRoom.stateHash; the bots' remembered targets are not hashed, a difference there shows
+    // up as soon as it moves a player.
+    public long hash() {
+        long h = mix(count, Double.doubleToLongBits(ballX));
+        h = mix(h, Double.doubleToLongBits(ballY));
+        h = mix(h, Double.doubleToLongBits(ballVx));
+        h = mix(h, Double.doubleToLongBits(ballVy));
+        for (int i = 0; i < count; i++) {
+            h = mix(h, id[i]);
+            h = mix(h, Objects.hashCode(name[i])); // Joins are refused by name, so names are state too
+            h = mix(h, team[i] | (bot[i] ? 2 : 0) | (approved[i] ? 4 : 0) | (goalkeeper[i] ? 8 : 0));
+            h = mix(h, Double.doubleToLongBits(x[i]));
+            h = mix(h, Double.doubleToLongBits(y[i]));
+            h = mix(h, Double.doubleToLongBits(vx[i]));
+            h = mix(h, Double.doubleToLongBits(vy[i]));
+            h = mix(h, Double.doubleToLongBits(stamina[i]));
+            h = mix(h, goals[i]);
+            h = mix(h, lastInput[i]);
+            h = mix(h, Double.doubleToLongBits(lastKickTime[i]));
+        }
+        return h;
+    }
+
+    // Cheap 64-bit mixing step (multiply, xor-shift)
+    public static long mix(long h, long v) {
+        h = (h ^ v) * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    private void grow() {
+        int n = id.length * 2;
+        id = Arrays.copyOf(id, n);
+        name = Arrays.copyOf(name, n);
+        team = Arrays.copyOf(team, n);
+        bot = Arrays.copyOf(bot, n);
+        approved = Arrays.copyOf(approved, n);
+        goalkeeper = Arrays.copyOf(goalkeeper, n);
+        x = Arrays.copyOf(x, n); y = Arrays.copyOf(y, n);
+        vx = Arrays.copyOf(vx, n); vy = Arrays.copyOf(vy, n);
+        startX = Arrays.copyOf(startX, n); startY = Arrays.copyOf(startY, n);
+        stamina = Arrays.copyOf(stamina, n);
+        goals = Arrays.copyOf(goals, n);
+        lastInput = Arrays.copyOf(lastInput, n);
+        lastKickTime = Arrays.copyOf(lastKickTime, n);
+    }
+
+    private void allocate(int n) {
+        id = new int[n];
+        name = new String[n];
+        team = new byte[n];
+        bot = new boolean[n];
+        approved = new boolean[n];
+        goalkeeper = new boolean[n];
+        x = new double[n]; y = new double[n];
+        vx = new double[n]; vy = new double[n];
+        startX = new double[n]; startY = new double[n];
+        stamina = new double[n];
+        goals = new int[n];
+        lastInput = new int[n];
+        lastKickTime = new double[n];
+    }
+}
@@ -0,0 +1,120 @@
+package com.soccer.server;
+
+import com.soccer.common.InputPacket;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+// Plays a recorded match (see MatchRecorder) again in a fresh room with the same seed, posting
+// the same joins, leaves, commands and inputs, in the same order, before the same ticks, and compares the state hash after every
+// tick with the recorded one. Any difference means the simulation is not deterministic any more
+// (or a change altered the gameplay), and the first tick it happens at is where to look.
+// It also reports how fast the replay ran, so a recorded match doubles as a performance test.
+//
+// Replays are bit-for-bit on the same JVM and settings; -Dsoccer.tickRate and the -Dsoccer.ai.*
+// options have to match the recording.
+//
+// Usage: ReplayVerifier <file.replay>
+public class ReplayVerifier {
+
+    // What a replay run found. firstMismatch is -1 when every tick matched.
+    public static final class Result {
+        public final long seed;
+        public int ticks, mismatches, firstMismatch = -1;
+        public double seconds;
+
+        Result(long seed) { this.seed = seed; }
+
+        public boolean ok() { return mismatches == 0; }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: ReplayVerifier <file.replay>");
+            System.exit(2);
+        }
+        Result result;
+        try {
+            result = verify(Paths.get(args[0]));
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        System.out.printf("Replayed %d ticks in %.2f s (%.0f ticks/s), seed %d%n",
+                result.ticks, result.seconds, result.ticks / result.seconds, result.seed);
+        if (result.ok()) {
+            System.out.println("OK: every tick matches the recording");
+        } else {
+            System.out.println("FAILED: " + result.mismatches + " ticks differ, the first one is tick " + result.firstMismatch);
+            System.exit(1);
+        }
+    }
+
+    // Plays 'file' again and compares every tick. Throws IllegalArgumentException if it is not a
+    // replay or was recorded at another tick rate.
+    public static Result verify(Path file) throws IOException {
+        List<String[]> lines = new ArrayList<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (!line.isEmpty()) lines.add(line.split(" ", 4)); // Names can have spaces, they are always last
+        }
+        if (lines.isEmpty() || !lines.get(0)[0].equals("SEED")) {
+            throw new IllegalArgumentException("Not a replay file: " + file);
+        }
+
+        long seed = Long.parseLong(lines.get(0)[1]);
+        int tickRate = Integer.parseInt(lines.get(0)[2]);
+        if (tickRate != GameRoom.TICK_RATE) {
+            throw new IllegalArgumentException("Recorded at " + tickRate + " ticks/s, run with -Dsoccer.tickRate=" + tickRate);
+        }
+
+        GameRoom room = new GameRoom(GameClock.simulated(), seed);
+        Result result = new Result(seed);
+        long start = System.nanoTime();
+
+        for (int n = 1; n < lines.size(); n++) {
+            String[] f = lines.get(n);
+            int tick = Integer.parseInt(f[1]);
+
+            // Everything recorded with tick t happened before/during tick t + 1: run up to there first.
+            // Those ticks had no events, their hashes are checked by the H lines below.
+            while (room.ticksDone() < tick) room.step();
+
+            switch (f[0]) {
+                case "J" -> room.requestJoin(Integer.parseInt(f[2]), f.length > 3 ? f[3] : null); // No name field: null
+                case "L" -> room.removePlayer(Integer.parseInt(f[2]));
+                case "C" -> {
+                    InputPacket pkt = new InputPacket();
+                    pkt.command = f[2];
+                    pkt.targetIdToApprove = Integer.parseInt(f[3]);
+                    room.submitCommand(pkt);
+                }
+                case "I" -> {
+                    String[] k = f[3].split(" ");
+                    room.submitInput(Integer.parseInt(f[2]), MatchRecorder.fromKeyBits(Integer.parseInt(k[0]), Integer.parseInt(k[1])));
+                }
+                case "H" -> {
+                    // Written right after tick 'tick', which the loop above has just run
+                    result.ticks++;
+                    if (room.stateHash() != Long.parseUnsignedLong(f[2], 16)) {
+                        if (result.firstMismatch < 0) {
+                            result.firstMismatch = tick;
+                            System.out.println("DESYNC at tick " + tick + ": recorded " + f[2] + ", replayed " + Long.toHexString(room.stateHash()));
+                        }
+                        result.mismatches++;
+                    }
+                }
+                default -> System.out.println("Skipping unknown line " + n + ": " + f[0]);
+            }
+        }
+
+        result.seconds = (System.nanoTime() - start) / 1e9;
+        return result;
+    }
+}
@@ -0,0 +1,142 @@
+package com.soccer.server;
+
+import com.soccer.common.SnapshotHistory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Keeps track of every match running in this server process.
+// Each room has its own GameRoom (with its own game thread), its own list of connected
+// clients and its own snapshot history, so inputs and broadcasts never cross between matches.
+public class RoomRegistry {
+    // The room the admin panel and old clients end up in. It is never torn down.
+    public static final String DEFAULT_ROOM = "main";
+    public static final int MAX_ROOMS = Integer.getInteger("soccer.maxRooms", 64);
+    // -Dsoccer.record=<dir>: every room writes a replay there (see ReplayVerifier)
+    private static final String RECORD_DIR = System.getProperty("soccer.record");
+
+    public static class Room {
+        public final String name;
+        public final GameRoom game;
+        private final Thread gameThread;
+
+        // Everyone receiving this room's snapshots (players and admins)
+        public final List<ClientConnection> clients = new CopyOnWriteArrayList<>();
+
+        // Only touched by the broadcast thread
+        final SnapshotHistory sentSnapshots = new SnapshotHistory(128);
+        int lastSentSequence = -1;
+
+        Room(String name) {
+            this.name = name;
+            this.game = new GameRoom();
+            if (RECORD_DIR != null) {
+                Path file = Paths.get(RECORD_DIR, name + "-" + game.seed + ".replay");
+                try {
+                    game.record(file);
+                    System.out.println("[Replay] Recording room " + name + " to " + file);
+                } catch (IOException e) {
+                    System.out.println("[Replay] Cannot record room " + name + ": " + e.getMessage());
+                }
+            }
+            this.gameThread = new Thread(game, "room-" + name);
+
+            // Thread Influencing (Setting Priority)
+            // We give the Game Thread MAXIMUM priority. This tells the OS/CPU that calculating
+            // physics is the most important task, ensuring smooth gameplay.
+            gameThread.setPriority(Thread.MAX_PRIORITY);
+            gameThread.start();
+        }
+
+        void stop() {
+            game.stop();
+        }
+
+        void stopAndWait() {
+            stop();
+            try {
+                gameThread.join(1000); // Wait up to 1 second for the game thread to finish
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private final ConcurrentHashMap<String, Room> rooms = new ConcurrentHashMap<>();
+    private final AtomicInteger autoRoomCounter = new AtomicInteger(1);
+
+    public RoomRegistry() {
+        rooms.put(DEFAULT_ROOM, new Room(DEFAULT_ROOM));
+    }
+
+    // Adds the client to the room's broadcast list, creating the room if needed.
+    // Returns null if the room does not exist and we already run MAX_ROOMS matches.
+    // Runs inside compute() so a room can't be torn down while someone is joining it.
+    public Room attach(String name, ClientConnection client) {
+        return rooms.compute(cleanName(name), (key, room) -> {
+            if (room == null) {
+                if (rooms.size() >= MAX_ROOMS) return null;
+                room = new Room(key);
+                System.out.println("[Rooms] Created room '" + key + "' (" + (rooms.size() + 1) + " running)");
+            }
+            room.clients.add(client);
+            return room;
+        });
+    }
+
+    // Picks a room for a player who didn't ask for one: the first match with a free slot,
+    // otherwise a brand new room.
+    public Room assign(String playerName, ClientConnection client) {
+        for (Room room : rooms.values()) {
+            if (room.game.looksJoinable(playerName)) {
+                Room attached = attach(room.name, client);
+                if (attached == room) return room;
+                if (attached != null) detach(attached, client); // Room was replaced while we looked, try a new one
+            }
+        }
+        return attach("room-" + autoRoomCounter.getAndIncrement(), client);
+    }
+
+    // Removes the client; an empty room (other than the default one) is shut down
+    public void detach(Room room, ClientConnection client) {
+        rooms.computeIfPresent(room.name, (key, r) -> {
+            r.clients.remove(client);
+            if (r.clients.isEmpty() && !DEFAULT_ROOM.equals(key)) {
+                r.stop(); // Only signals the loop, we may be on the I/O thread here
+                System.out.println("[Rooms] Closed empty room '" + key + "'");
+                return null;
+            }
+            return r;
+        });
+    }
+
+    // Room names travel inside the "OK ROOM <name> ..." reply, so no spaces and nothing huge
+    private static String cleanName(String name) {
+        String cleaned = name.trim().replaceAll("\\s+", "-");
+        if (cleaned.isEmpty()) return DEFAULT_ROOM;
+        return cleaned.length() > 32 ? cleaned.substring(0, 32) : cleaned;
+    }
+
+    public Collection<Room> all() {
+        return rooms.values();
+    }
+
+    public ClientConnection findPlayer(int playerId) {
+        for (Room room : rooms.values()) {
+            for (ClientConnection client : room.clients) {
+                if (client.playerId == playerId) return client;
+            }
+        }
+        return null;
+    }
+
+    public void shutdown() {
+        for (Room room : rooms.values()) room.stopAndWait();
+    }
+}
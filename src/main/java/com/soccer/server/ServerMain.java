@@ -1,65 +1,104 @@
 package com.soccer.server;
 
 import com.soccer.common.Constants;
+import com.soccer.common.GameState;
 import com.soccer.common.InputPacket;
+import com.soccer.common.WireCodec;
 
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
 import java.io.EOFException;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
 
 // This is the main entry point for the Server side.
 // It handles networking, client connections, and broadcasting data.
+//
+// Server modes (first program argument, or -Dsoccer.server.mode=...):
+//   nio      (default) one selector thread serves every connection, see NioServer
+//   blocking the old model: one pooled thread per connection running handleClient (max 50 clients)
+//   virtual  handleClient on a JDK 21 virtual thread per connection, no pool limit
+// ConnectionBenchmark compares how many connections each mode can serve.
+// UDP for snapshots/inputs is offered to clients unless -Dsoccer.udp=false (see UdpTransport).
+//
+// One process runs many matches at once. Every match is a room in the RoomRegistry with its own
+// GameRoom thread; clients pick a room by name at JOIN time or get one with a free slot.
 public class ServerMain {
-    private static GameRoom gameRoom;
+    private static RoomRegistry rooms;
+    private static UdpTransport udp;
+    // Snapshots sent per second to each room's clients (-Dsoccer.sendRate, at most the tick rate)
+    private static final int SEND_RATE = Math.max(1, Math.min(GameRoom.TICK_RATE, Integer.getInteger("soccer.sendRate", 60)));
 
-    // We use CopyOnWriteArrayList here because it's thread-safe for reading while we iterate through it
-    private static final List<ObjectOutputStream> clientWriters = new CopyOnWriteArrayList<>();
 
-    // Use a Thread Pool to manage connections
-    // We use a FixedThreadPool (limit 50). This prevents the server from crashing (Memory Overflow)
+    // Thread Pool for the "blocking" and "virtual" modes.
+    // Blocking uses a FixedThreadPool (limit 50). This prevents the server from crashing (Memory Overflow)
     // if too many people try to connect at the exact same time.
-    private static final ExecutorService pool = Executors.newFixedThreadPool(50);
+    // Virtual threads cost a few KB each, so there we simply start one per connection.
+    private static ExecutorService pool;
+    private static ThreadFactory writerThreads;
 
     public static void main(String[] args) {
         System.out.println(">>> STARTING SOCCER SERVER on Port " + Constants.PORT + " <<<");
 
-        // Initialize the game logic
-        gameRoom = new GameRoom();
+        // Initialize the game logic. The registry starts the default room's game thread right away,
+        // other rooms are created when the first client asks for them.
+        rooms = new RoomRegistry();
 
-        // Start the Game Loop in its own thread
-        Thread gameThread = new Thread(gameRoom);
-
-        // Thread Influencing (Setting Priority)
-        // We give the Game Thread MAXIMUM priority. This tells the OS/CPU that calculating
-        // physics is the most important task, ensuring smooth gameplay.
-        gameThread.setPriority(Thread.MAX_PRIORITY);
-        gameThread.start();
+        // Optional UDP channel, runs its own receive thread
+        if (Boolean.parseBoolean(System.getProperty("soccer.udp", "true"))) {
+            try {
+                udp = new UdpTransport(Constants.UDP_PORT);
+                Thread udpThread = new Thread(udp, "udp");
+                udpThread.setDaemon(true);
+                udpThread.start();
+                System.out.println(">>> UDP enabled on Port " + udp.getPort() + " <<<");
+            } catch (IOException e) {
+                System.out.println("UDP disabled: " + e.getMessage());
+                udp = null;
+            }
+        }
 
         // Start the broadcasting thread (sends data to clients)
         new Thread(ServerMain::broadcastLoop).start();
 
+        String mode = args.length > 0 ? args[0] : System.getProperty("soccer.server.mode", "nio");
+        if ("blocking".equals(mode)) {
+            pool = Executors.newFixedThreadPool(50);
+            writerThreads = Thread.ofPlatform().daemon().name("writer-", 0).factory();
+        } else if ("virtual".equals(mode)) {
+            pool = Executors.newVirtualThreadPerTaskExecutor();
+            writerThreads = Thread.ofVirtual().name("writer-", 0).factory();
+        }
+        System.out.println(">>> Server mode: " + (pool == null ? "nio" : mode) + " <<<");
+
         // Implement Joining Threads
         // This "Shutdown Hook" runs when you force-stop the server (e.g., Ctrl+C).
-        // It tries to gracefully wait for the game thread to finish its current task before killing the process.
+        // It tries to gracefully wait for the game threads to finish their current task before killing the process.
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-            try {
-                System.out.println("Shutting down server...");
-                pool.shutdown(); // Stop accepting new clients
-                gameThread.join(1000); // Wait up to 1 second for the game thread to finish
-                System.out.println("Server shutdown complete.");
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
+            System.out.println("Shutting down server...");
+            if (pool != null) pool.shutdown(); // Stop accepting new clients
+            rooms.shutdown();
+            System.out.println("Server shutdown complete.");
         }));
 
-        // Main Server Loop: Accept connections
+        try {
+            if (pool != null) runBlockingServer();
+            else new NioServer(Constants.PORT).run(); // The main thread becomes the I/O thread
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Main Server Loop for the "blocking" and "virtual" modes: Accept connections
+    private static void runBlockingServer() throws IOException {
         try (ServerSocket serverSocket = new ServerSocket(Constants.PORT)) {
             while (true) {
                 System.out.println("Waiting for connections...");
@@ -68,107 +107,203 @@ public class ServerMain {
                 // Instead of "new Thread()", we pass the task to our Thread Pool
                 pool.execute(() -> handleClient(socket));
             }
-        } catch (IOException e) {
-            e.printStackTrace();
         }
     }
 
-    // Handles the individual conversation with one client
+    // Handles the individual conversation with one client (blocking and virtual modes).
+    // Everything reachable from here uses java.util.concurrent locks instead of 'synchronized',
+    // so a virtual thread that blocks inside never pins its carrier thread.
     private static void handleClient(Socket socket) {
-        ObjectOutputStream out = null;
-        ObjectInputStream in = null;
-        int playerId = -1;
+        StreamConnection client = null;
 
         try {
-            out = new ObjectOutputStream(socket.getOutputStream());
-            out.flush();
-            in = new ObjectInputStream(socket.getInputStream());
-
-            // The first thing a client sends is who they are (Handshake)
-            Object firstObj = in.readObject();
-            if (firstObj instanceof InputPacket) {
-                InputPacket packet = (InputPacket) firstObj;
-
-                // Case 1: It's the Admin
-                if ("ADMIN_LOGIN".equals(packet.command)) {
-                    System.out.println(">>> ADMIN CONNECTED! <<<");
-                    clientWriters.add(out);
-                }
-                // Case 2: It's a Player asking to join
-                else if ("JOIN".equals(packet.command)) {
-                    String checkResult = gameRoom.checkJoinRequest(packet.playerName);
+            socket.setTcpNoDelay(true); // Small frames, send them right away
+            client = StreamConnection.open(socket, writerThreads);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
 
-                    if ("OK".equals(checkResult)) {
-                        out.writeObject("OK");
-                        out.flush();
+            // Continuous loop: Listen for the handshake, then inputs (Keys pressed) from this client
+            while (handleFrame(client, WireCodec.readFrame(in))) {
+                // handleFrame does all the work
+            }
+
+        } catch (EOFException | java.net.SocketException e) {
+            // This happens normally when a client closes the window
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            // Cleanup: Remove from lists so we don't send data to dead sockets
+            if (client != null) {
+                onDisconnect(client);
+                client.closeAfterSending(); // Let the writer flush a "FAIL:" reply first
+            } else {
+                try { socket.close(); } catch (IOException e) {}
+            }
+        }
+    }
 
-                        playerId = packet.id;
-                        String name = packet.playerName;
-                        System.out.println(">>> PLAYER JOINED: " + name + " (" + playerId + ")");
+    // Processes one frame from a client. Shared by every server mode.
+    // Returns false when the connection should be closed (e.g. join was rejected).
+    static boolean handleFrame(ClientConnection client, ByteBuffer frame) throws IOException {
+        byte type = WireCodec.openFrame(frame);
 
-                        // Add to game logic and broadcast list
-                        gameRoom.addPlayer(playerId, name);
-                        clientWriters.add(out);
+        // The first thing a client sends is who they are (Handshake)
+        if (!client.isHandshakeDone) {
+            if (type != WireCodec.MSG_INPUT || client.room != null) return true; // Nothing yet, or our join is still queued
+            InputPacket packet = WireCodec.decodeInput(frame);
+
+            // Case 1: It's the Admin. The admin panel watches one room, "main" unless it names another.
+            if ("ADMIN_LOGIN".equals(packet.command)) {
+                String roomName = packet.roomName != null ? packet.roomName : RoomRegistry.DEFAULT_ROOM;
+                RoomRegistry.Room room = rooms.attach(roomName, client);
+                if (room == null) {
+                    client.send(WireCodec.encodeReply("FAIL:Too many rooms (Max " + RoomRegistry.MAX_ROOMS + ")"));
+                    return false;
+                }
+                System.out.println(">>> ADMIN CONNECTED to room '" + room.name + "' <<<");
+                client.room = room;
+                client.isAdmin = true;
+                client.isHandshakeDone = true;
+            }
+            // Case 2: It's a Player asking to join
+            else if ("JOIN".equals(packet.command)) {
+                // Attaching first keeps the room alive while we check the name and add the player
+                RoomRegistry.Room room = packet.roomName != null
+                        ? rooms.attach(packet.roomName, client)
+                        : rooms.assign(packet.playerName, client);
+                if (room == null) {
+                    client.send(WireCodec.encodeReply("FAIL:Too many rooms (Max " + RoomRegistry.MAX_ROOMS + ")"));
+                    return false;
+                }
+                client.room = room;
+                // Set now, so a disconnect while the join is still queued also queues the leave
+                client.playerId = packet.id;
+
+                // The game thread checks the name and adds the player in one go, then answers here.
+                // Nothing waits for it: this connection's thread goes back to reading meanwhile.
+                room.game.requestJoin(packet.id, packet.playerName).thenAccept(checkResult -> {
+                    if ("OK".equals(checkResult)) {
+                        // Tell the client which room it ended up in, the tick rate (it sends one input
+                        // per tick and predicts with the same dt), and if it asked for UDP, where to
+                        // send its hello: "OK ROOM <name> TICK <rate> [UDP <port> <token>]"
+                        String reply = "OK ROOM " + room.name + " TICK " + GameRoom.TICK_RATE;
+                        if (packet.wantsUdp && udp != null) {
+                            client.udpToken = ThreadLocalRandom.current().nextInt(1, Integer.MAX_VALUE);
+                            reply += " UDP " + udp.getPort() + " " + client.udpToken;
+                        }
+                        client.send(WireCodec.encodeReply(reply));
+                        // Only now does the broadcaster start sending, so "OK" is always the first frame the client reads
+                        client.isHandshakeDone = true;
+                        System.out.println(">>> PLAYER JOINED room '" + room.name + "': " + packet.playerName + " (" + packet.id + ")");
                     } else {
                         // Reject connection (Full or Duplicate Name)
-                        out.writeObject("FAIL:" + checkResult);
-                        out.flush();
-                        socket.close();
-                        return;
+                        client.playerId = -1;
+                        client.send(WireCodec.encodeReply("FAIL:" + checkResult));
+                        client.closeAfterSending();
                     }
-                }
+                });
             }
+            return true;
+        }
 
-            // Continuous loop: Listen for inputs (Keys pressed) from this client
-            while (true) {
-                Object obj = in.readObject();
-                if (obj instanceof InputPacket) {
-                    InputPacket input = (InputPacket) obj;
+        // Client confirms it has a snapshot, future deltas can be built against it
+        if (type == WireCodec.MSG_ACK) {
+            client.lastAckedSequence = Math.max(client.lastAckedSequence, WireCodec.decodeAck(frame));
+        }
+        else if (type == WireCodec.MSG_INPUT) {
+            handleInput(client, WireCodec.decodeInput(frame));
+        }
+        return true;
+    }
 
-                    // Normal player input
-                    if (input.id != 0) {
-                        gameRoom.inputs.put(input.id, input);
-                    }
-                    // Admin commands (Start/End/Approve) usually come with ID 0 or specific flags
-                    else if ("START".equals(input.command) || "END".equals(input.command) || "APPROVE".equals(input.command)) {
-                        // We use a dummy ID (-999) or handle directly in GameRoom
-                        gameRoom.inputs.put(-999, input);
-                    }
-                }
-            }
+    // Routes a player input or admin command into the client's own room (TCP and UDP)
+    static void handleInput(ClientConnection client, InputPacket input) {
+        RoomRegistry.Room room = client.room;
+        if (room == null) return; // Already disconnected (a late UDP datagram)
+        GameRoom gameRoom = room.game;
+        // Commands (Start/End/Approve) from the admin panel or the lobby's start button
+        if ("START".equals(input.command) || "END".equals(input.command) || "APPROVE".equals(input.command)) {
+            gameRoom.submitCommand(input);
+        }
+        // Normal player input. Queued under the id this connection joined with,
+        // so nobody can steer another player by putting a different id in the packet.
+        else if (input.command == null && client.playerId != -1) {
+            gameRoom.submitInput(client.playerId, input);
+        }
+    }
 
-        } catch (EOFException | java.net.SocketException e) {
-            // This happens normally when a client closes the window
-        } catch (Exception e) {
-            e.printStackTrace();
-        } finally {
-            // Cleanup: Remove from lists so we don't send data to dead sockets
-            if (out != null) clientWriters.remove(out);
-            if (playerId != -1) gameRoom.removePlayer(playerId);
-            try { socket.close(); } catch (IOException e) {}
+    static ClientConnection findPlayer(int playerId) {
+        return rooms.findPlayer(playerId);
+    }
+
+    // Cleanup when a connection goes away (any server mode)
+    static void onDisconnect(ClientConnection client) {
+        if (udp != null) udp.forget(client);
+        RoomRegistry.Room room = client.room;
+        if (room == null) return;
+        if (client.playerId != -1) {
+            room.game.removePlayer(client.playerId);
+            client.playerId = -1;
         }
+        // Remove from lists so we don't send data to dead sockets. The last one out closes the room.
+        rooms.detach(room, client);
+        client.room = null;
     }
 
-    // This loop runs constantly to send the GameState to all connected clients
+    // This loop runs constantly to send the GameState of every room to that room's clients
     private static void broadcastLoop() {
         while (true) {
             try {
-                Object stateToSend = gameRoom.getGameState();
-
-                // Iterate through all connected clients and send the object
-                for (ObjectOutputStream writer : clientWriters) {
-                    try {
-                        writer.reset(); // Important: Resets object cache so updated values are sent
-                        writer.writeUnshared(stateToSend);
-                        writer.flush();
-                    } catch (IOException e) {
-                        // If sending fails, assume client disconnected
-                        clientWriters.remove(writer);
-                    }
+                for (RoomRegistry.Room room : rooms.all()) {
+                    // Nobody watching, nothing to encode
+                    if (!room.clients.isEmpty()) broadcastRoom(room);
                 }
-                // roughly 60 updates per second
-                Thread.sleep(16);
+                // roughly 60 updates per second by default. Clients interpolate between snapshots
+                // (see SnapshotBuffer), so a lower rate still looks smooth, just a bit more delayed.
+                Thread.sleep(1000 / SEND_RATE);
             } catch (Exception e) { e.printStackTrace(); }
         }
     }
+
+    private static void broadcastRoom(RoomRegistry.Room room) {
+        // Take the snapshot the game thread published at the end of its last tick. We never read
+        // the live state, so every frame we send has the ball and players from the same tick.
+        GameState snapshot = room.game.getLatestSnapshot();
+        if (snapshot.sequence == room.lastSentSequence) return; // No new tick since our last round
+        room.lastSentSequence = snapshot.sequence;
+
+        // Remember it as a possible baseline. Recent snapshots are kept per room (about 2 seconds),
+        // so each client's update can be a delta against the last one it acknowledged;
+        // a client lagging further behind gets a full snapshot again.
+        room.sentSnapshots.put(snapshot);
+
+        // Serialize once: every frame is encoded a single time per tick and the same
+        // bytes are queued for all clients that need it. Clients usually acknowledged
+        // the same recent snapshot, so there are only a handful of distinct deltas.
+        // The delta cache is local to this room and this round: sequence numbers are per room,
+        // so another room's frame for "baseline 812" would be a different match.
+        byte[] fullFrame = null;
+        Map<Integer, byte[]> deltaFrames = new HashMap<>();
+
+        for (ClientConnection client : room.clients) {
+            if (!client.isHandshakeDone) continue; // Join not answered yet
+            // Delta if we still have what the client last acknowledged, full snapshot otherwise
+            GameState baseline = room.sentSnapshots.get(client.lastAckedSequence);
+            byte[] frame;
+            if (baseline != null) {
+                frame = deltaFrames.get(baseline.sequence);
+                if (frame == null) {
+                    frame = WireCodec.encodeDelta(baseline, snapshot);
+                    deltaFrames.put(baseline.sequence, frame);
+                }
+            } else {
+                if (fullFrame == null) fullFrame = WireCodec.encodeState(snapshot);
+                frame = fullFrame;
+            }
+            // UDP clients get a datagram. Everyone else (and frames too big for one datagram, and
+            // clients whose UDP isn't confirmed yet) goes into the client's bounded TCP queue,
+            // which never blocks (see ClientConnection).
+            if (udp != null && udp.sendSnapshot(client, frame)) continue;
+            client.sendSnapshot(frame);
+        }
+    }
 }
\ No newline at end of file
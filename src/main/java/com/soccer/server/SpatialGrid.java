@@ -0,0 +1,125 @@
+package com.soccer.server;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+// Uniform grid over the pitch for "who is close to this point" questions.
+// Entities are plain indices (0..count-1) into the caller's x/y arrays. The grid is rebuilt
+// from scratch every tick with a counting sort, which is O(n) and allocation free, so a query
+// only looks at the few cells around the point instead of every player on the pitch.
+public class SpatialGrid {
+    private final double cellSize;
+    private final int cols, rows;
+
+    // Counting sort layout: the entities of cell c are entries[cellStart[c] .. cellStart[c + 1])
+    private final int[] cellStart;
+    private int[] entries = new int[32];
+    private int[] cellOf = new int[32];
+
+    // The positions the grid was last built from
+    private double[] xs, ys;
+    private int count;
+
+    public SpatialGrid(double width, double height, double cellSize) {
+        this.cellSize = cellSize;
+        this.cols = Math.max(1, (int) Math.ceil(width / cellSize));
+        this.rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        this.cellStart = new int[cols * rows + 1];
+    }
+
+    // Re-buckets every entity. x and y are kept by reference, don't change them until the next rebuild.
+    public void rebuild(double[] x, double[] y, int count) {
+        this.xs = x;
+        this.ys = y;
+        this.count = count;
+        if (entries.length < count) {
+            entries = new int[Math.max(count, entries.length * 2)];
+            cellOf = new int[entries.length];
+        }
+
+        Arrays.fill(cellStart, 0);
+        for (int i = 0; i < count; i++) {
+            cellOf[i] = cell(colOf(x[i]), rowOf(y[i]));
+            cellStart[cellOf[i] + 1]++;
+        }
+        for (int c = 0; c < cols * rows; c++) cellStart[c + 1] += cellStart[c];
+
+        // cellStart[c] is used as the write cursor, then shifted back
+        for (int i = 0; i < count; i++) entries[cellStart[cellOf[i]]++] = i;
+        for (int c = cols * rows; c > 0; c--) cellStart[c] = cellStart[c - 1];
+        cellStart[0] = 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    // Writes every entity within 'radius' of (cx, cy) into 'out' and returns how many there are.
+    // 'out' must be at least size() long.
+    public int queryRadius(double cx, double cy, double radius, int[] out) {
+        int found = 0;
+        double r2 = radius * radius;
+        int c0 = colOf(cx - radius), c1 = colOf(cx + radius);
+        int r0 = rowOf(cy - radius), r1 = rowOf(cy + radius);
+        for (int row = r0; row <= r1; row++) {
+            for (int col = c0; col <= c1; col++) {
+                int c = cell(col, row);
+                for (int k = cellStart[c]; k < cellStart[c + 1]; k++) {
+                    int i = entries[k];
+                    double dx = xs[i] - cx, dy = ys[i] - cy;
+                    if (dx * dx + dy * dy <= r2) out[found++] = i;
+                }
+            }
+        }
+        return found;
+    }
+
+    // Closest entity to (cx, cy) within 'maxRadius' that passes 'accept', or -1 if there is none.
+    // Searches ring by ring outwards and stops as soon as no closer entity can exist.
+    // Used for nearest teammate / nearest opponent (the predicate checks the team).
+    public int nearest(double cx, double cy, double maxRadius, IntPredicate accept) {
+        int best = -1;
+        double bestD2 = maxRadius * maxRadius;
+        int col = colOf(cx), row = rowOf(cy);
+        int maxRing = Math.max(cols, rows);
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // Anything in this ring is at least (ring - 1) cells away
+            double minDist = Math.max(0, ring - 1) * cellSize;
+            if (minDist * minDist > bestD2) break;
+
+            for (int r = row - ring; r <= row + ring; r++) {
+                if (r < 0 || r >= rows) continue;
+                boolean edgeRow = (r == row - ring || r == row + ring);
+                for (int c = col - ring; c <= col + ring; c++) {
+                    if (c < 0 || c >= cols) continue;
+                    if (!edgeRow && c != col - ring && c != col + ring) continue; // Inner cells were done already
+                    int cell = cell(c, r);
+                    for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                        int i = entries[k];
+                        double dx = xs[i] - cx, dy = ys[i] - cy;
+                        double d2 = dx * dx + dy * dy;
+                        if (d2 <= bestD2 && accept.test(i)) {
+                            best = i;
+                            bestD2 = d2;
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    // Entities off the pitch go into the border cells
+    private int colOf(double x) {
+        return Math.max(0, Math.min(cols - 1, (int) Math.floor(x / cellSize)));
+    }
+
+    private int rowOf(double y) {
+        return Math.max(0, Math.min(rows - 1, (int) Math.floor(y / cellSize)));
+    }
+
+    private int cell(int col, int row) {
+        return row * cols + col;
+    }
+}
@@ -0,0 +1,56 @@
+package com.soccer.server;
+
+import com.soccer.common.WireCodec;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.concurrent.ThreadFactory;
+
+// A client on a classic blocking Socket (used by the "blocking" and "virtual" server modes).
+// A dedicated writer thread drains the outbound queue, so a client that reads slowly
+// only blocks its own writer and never the broadcaster.
+// The writer is a platform or a virtual thread depending on the factory we get.
+public class StreamConnection extends ClientConnection {
+    private final Socket socket;
+    private final DataOutputStream out;
+
+    // Creates the connection and starts its writer. The writer is started here and not in the
+    // constructor, so it never sees a half-built object.
+    public static StreamConnection open(Socket socket, ThreadFactory writerThreads) throws IOException {
+        StreamConnection connection = new StreamConnection(socket);
+        writerThreads.newThread(connection::writeLoop).start();
+        return connection;
+    }
+
+    private StreamConnection(Socket socket) throws IOException {
+        this.socket = socket;
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    private void writeLoop() {
+        try {
+            while (!closed) {
+                byte[] frame = awaitFrame(500);
+                if (frame != null) WireCodec.writeFrame(out, frame);
+                else if (closeWhenDrained) close();
+            }
+        } catch (IOException | InterruptedException e) {
+            // Socket closed under us, the reader thread does the cleanup
+            close();
+        }
+    }
+
+    @Override
+    protected void onFrameQueued() {
+        // The writer thread is woken up by the queue itself
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try { socket.close(); } catch (IOException e) {}
+        clearQueue();
+    }
+}
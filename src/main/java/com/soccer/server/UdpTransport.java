@@ -0,0 +1,154 @@
+package com.soccer.server;
+
+import com.soccer.common.Constants;
+import com.soccer.common.InputPacket;
+import com.soccer.common.WireCodec;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Optional UDP channel for the latency-sensitive traffic: snapshots (server -> client)
+// and movement inputs + acks (client -> server).
+// Over TCP one lost packet holds back every snapshot behind it; over UDP a lost snapshot is
+// simply skipped, and the next delta is still built against the last one the client acked.
+//
+// How a client gets here:
+//   1. TCP JOIN with wantsUdp=true, the server answers "OK UDP <port> <token>"
+//   2. the client sends MSG_UDP_HELLO(playerId, token) datagrams until snapshots arrive
+//   3. snapshots now go out on both channels, and the client acks the datagrams over UDP
+//   4. the first UDP ack proves datagrams reach the client: from then on snapshots are UDP only
+// If no UDP ack comes within CONFIRM_TIMEOUT (NAT or a firewall dropping our datagrams) the
+// client just stays on TCP. Fix: before, snapshots moved to UDP on the hello alone, and a client
+// that couldn't receive datagrams got nothing at all.
+// JOIN/START/END/APPROVE and the handshake replies always stay on TCP.
+public class UdpTransport implements Runnable {
+    private static final long CONFIRM_TIMEOUT_NANOS = 5_000_000_000L;
+
+    private final DatagramChannel channel;
+
+    // Clients that finished the UDP hello, by their UDP address
+    private final Map<SocketAddress, ClientConnection> byAddress = new ConcurrentHashMap<>();
+
+    public UdpTransport(int port) throws IOException {
+        channel = DatagramChannel.open();
+        channel.bind(new InetSocketAddress(port));
+        // Sends never block the broadcaster; if the OS buffer is full the datagram is dropped,
+        // which is fine for snapshots
+        channel.configureBlocking(false);
+    }
+
+    public int getPort() {
+        return channel.socket().getLocalPort();
+    }
+
+    // Sends a snapshot frame by UDP if this client can get it that way.
+    // Returns true if the datagram is all the client needs, false if it must go over TCP as well
+    // (no UDP, frame too big, or UDP not confirmed yet; then the datagram is only a probe).
+    public boolean sendSnapshot(ClientConnection client, byte[] frame) {
+        SocketAddress address = client.udpAddress;
+        if (address == null || frame.length > Constants.MAX_DATAGRAM) return false;
+        if (client.udpConfirmed) {
+            send(address, frame);
+            return true;
+        }
+        if (System.nanoTime() - client.udpHelloNanos > CONFIRM_TIMEOUT_NANOS) {
+            System.out.println("[Net] Player " + client.playerId + " never acked a UDP snapshot, staying on TCP");
+            forget(client);
+            client.udpAddress = null;
+            return false;
+        }
+        send(address, frame);
+        return false;
+    }
+
+    private void send(SocketAddress address, byte[] frame) {
+        try {
+            channel.send(ByteBuffer.wrap(frame), address);
+        } catch (IOException e) {
+            // Lost datagram, same as packet loss on the network
+        }
+    }
+
+    public void forget(ClientConnection client) {
+        if (client.udpAddress != null) byAddress.remove(client.udpAddress, client);
+    }
+
+    // Receive loop, runs on its own thread
+    @Override
+    public void run() {
+        ByteBuffer buf = ByteBuffer.allocate(Constants.MAX_DATAGRAM);
+        try (Selector selector = Selector.open()) {
+            channel.register(selector, SelectionKey.OP_READ);
+            while (channel.isOpen()) {
+                selector.select();
+                selector.selectedKeys().clear();
+
+                SocketAddress from;
+                while ((from = receive(buf)) != null) {
+                    try {
+                        buf.flip();
+                        handleDatagram(from, WireCodec.openDatagram(buf));
+                    } catch (Exception e) {
+                        // Garbage or truncated datagram, ignore it
+                    }
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private SocketAddress receive(ByteBuffer buf) throws IOException {
+        buf.clear();
+        return channel.receive(buf);
+    }
+
+    private void handleDatagram(SocketAddress from, ByteBuffer frame) throws IOException {
+        byte type = WireCodec.openFrame(frame);
+
+        if (type == WireCodec.MSG_UDP_HELLO) {
+            int[] hello = WireCodec.decodeUdpHello(frame);
+            ClientConnection client = ServerMain.findPlayer(hello[0]);
+            if (client == null || client.udpToken == 0 || client.udpToken != hello[1]) return;
+            if (!from.equals(client.udpAddress)) {
+                forget(client);
+                client.udpConfirmed = false;
+                client.udpHelloNanos = System.nanoTime();
+                client.udpAddress = from;
+                byAddress.put(from, client);
+                System.out.println("[Net] Player " + client.playerId + " said hello over UDP (" + from + ")");
+            }
+            return;
+        }
+
+        ClientConnection client = byAddress.get(from);
+        if (client == null) return;
+
+        if (type == WireCodec.MSG_ACK) {
+            client.lastAckedSequence = Math.max(client.lastAckedSequence, WireCodec.decodeAck(frame));
+            // Clients only ack over UDP what came in over UDP, so datagrams do reach this one
+            if (!client.udpConfirmed) {
+                client.udpConfirmed = true;
+                System.out.println("[Net] Player " + client.playerId + " switched to UDP");
+            }
+        } else if (type == WireCodec.MSG_INPUT) {
+            InputPacket input = WireCodec.decodeInput(frame);
+            // Only movement for this player, and only if it is newer than what we already have
+            if (input.id != client.playerId || input.command != null) return;
+            if (input.sequence <= client.lastUdpInputSequence) return;
+            client.lastUdpInputSequence = input.sequence;
+            ServerMain.handleInput(client, input);
+        }
+    }
+
+    public void close() {
+        try { channel.close(); } catch (IOException e) {}
+    }
+}
@@ -0,0 +1,271 @@
+package com.soccer.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WireCodecTest {
+
+    @Test
+    void stateRoundTrip() throws IOException {
+        GameState state = sampleState();
+
+        ByteBuffer body = body(WireCodec.encodeState(state));
+        assertEquals(WireCodec.MSG_STATE, WireCodec.openFrame(body));
+        GameState decoded = WireCodec.decodeState(body);
+
+        assertSameState(state, decoded);
+        assertFalse(body.hasRemaining());
+    }
+
+    @Test
+    void inputRoundTrip() throws IOException {
+        InputPacket packet = new InputPacket();
+        packet.command = "JOIN";
+        packet.id = 4242;
+        packet.sequence = 17;
+        packet.targetIdToApprove = -101;
+        packet.up = true;
+        packet.right = true;
+        packet.sprint = true;
+        packet.wantsUdp = true;
+        packet.playerName = "Zoë";
+        packet.roomName = "main";
+
+        ByteBuffer body = body(WireCodec.encodeInput(packet));
+        assertEquals(WireCodec.MSG_INPUT, WireCodec.openFrame(body));
+        InputPacket decoded = WireCodec.decodeInput(body);
+
+        assertEquals("JOIN", decoded.command);
+        assertEquals(4242, decoded.id);
+        assertEquals(17, decoded.sequence);
+        assertEquals(-101, decoded.targetIdToApprove);
+        assertTrue(decoded.up && decoded.right && decoded.sprint && decoded.wantsUdp);
+        assertFalse(decoded.down || decoded.left || decoded.shoot || decoded.adminApproveSignal);
+        assertEquals("Zoë", decoded.playerName);
+        assertEquals("main", decoded.roomName);
+    }
+
+    @Test
+    void movementInputHasNoCommandOrNames() throws IOException {
+        InputPacket packet = new InputPacket();
+        packet.id = 7;
+        packet.sequence = 1;
+        packet.shoot = true;
+
+        ByteBuffer body = body(WireCodec.encodeInput(packet));
+        WireCodec.openFrame(body);
+        InputPacket decoded = WireCodec.decodeInput(body);
+
+        assertNull(decoded.command);
+        assertNull(decoded.playerName);
+        assertNull(decoded.roomName);
+        assertTrue(decoded.shoot);
+    }
+
+    @Test
+    void replyAndAckRoundTrip() throws IOException {
+        ByteBuffer reply = body(WireCodec.encodeReply("OK ROOM main TICK 60"));
+        assertEquals(WireCodec.MSG_REPLY, WireCodec.openFrame(reply));
+        assertEquals("OK ROOM main TICK 60", WireCodec.decodeReply(reply));
+
+        ByteBuffer ack = body(WireCodec.encodeAck(123456));
+        assertEquals(WireCodec.MSG_ACK, WireCodec.openFrame(ack));
+        assertEquals(123456, WireCodec.decodeAck(ack));
+    }
+
+    @Test
+    void otherVersionIsRejected() {
+        byte[] frame = WireCodec.encodeAck(1);
+        frame[4] = (byte) (WireCodec.VERSION + 1);
+        assertThrows(IOException.class, () -> WireCodec.openFrame(body(frame)));
+    }
+
+    @Test
+    void truncatedBodiesThrowIOException() throws IOException {
+        assertTruncatedThrows(WireCodec.encodeState(sampleState()), b -> WireCodec.decodeState(b));
+        assertTruncatedThrows(WireCodec.encodeReply("OK ROOM main"), b -> WireCodec.decodeReply(b));
+        assertTruncatedThrows(WireCodec.encodeAck(5), b -> WireCodec.decodeAck(b));
+
+        InputPacket packet = new InputPacket();
+        packet.command = "JOIN";
+        packet.playerName = "Player";
+        assertTruncatedThrows(WireCodec.encodeInput(packet), b -> WireCodec.decodeInput(b));
+    }
+
+    @Test
+    void longNamesAreCutBetweenCharacters() throws IOException {
+        // 'é' is two bytes in UTF-8, so 255 bytes would end halfway through the 128th one
+        InputPacket packet = new InputPacket();
+        packet.command = "JOIN";
+        packet.playerName = "é".repeat(200);
+
+        ByteBuffer body = body(WireCodec.encodeInput(packet));
+        WireCodec.openFrame(body);
+        assertEquals("é".repeat(127), WireCodec.decodeInput(body).playerName);
+
+        // Three-byte characters: 85 of them fit exactly
+        packet.playerName = "€".repeat(100);
+        body = body(WireCodec.encodeInput(packet));
+        WireCodec.openFrame(body);
+        assertEquals("€".repeat(85), WireCodec.decodeInput(body).playerName);
+    }
+
+    @Test
+    void deltaRebuildsTheStateWithTheSameRoster() throws IOException {
+        GameState base = sampleState();
+        GameState next = base.copy();
+        next.sequence = base.sequence + 3;
+        next.scoreBlue = 2;
+        next.timeString = "37:06";
+        next.ballX = 612.75;
+        next.players.get(0).x += 1.5;
+        next.players.get(0).lastProcessedInput = 904;
+        next.players.get(1).stamina = 99;
+        next.players.get(2).isGoalKeeper = true;
+
+        assertSameState(next, applyDelta(base, next));
+    }
+
+    @Test
+    void deltaRebuildsTheStateAfterRosterChanges() throws IOException {
+        GameState base = sampleState();
+        GameState next = base.copy();
+        next.sequence = base.sequence + 1;
+        // The keeper leaves, a new human joins in front, the others swap places
+        GameState.PlayerState newcomer = new GameState.PlayerState(77, "Late Joiner", "BLUE", 1000, 100, false);
+        newcomer.lastProcessedInput = 3;
+        GameState.PlayerState human = next.players.get(0), bot = next.players.get(2);
+        next.players.clear();
+        next.players.add(newcomer);
+        next.players.add(bot);
+        next.players.add(human);
+        human.name = "Zoë (AFK)";
+
+        assertSameState(next, applyDelta(base, next));
+    }
+
+    @Test
+    void deltaSendsTheInputSequenceOnlyWhenItChanged() throws IOException {
+        GameState base = sampleState();
+        GameState same = base.copy();
+        same.sequence = base.sequence + 1;
+        GameState changed = same.copy();
+        changed.players.get(0).lastProcessedInput = 950;
+
+        byte[] unchangedFrame = WireCodec.encodeDelta(base, same);
+        byte[] changedFrame = WireCodec.encodeDelta(base, changed);
+        assertEquals(unchangedFrame.length + 4, changedFrame.length);
+
+        assertEquals(901, applyDelta(base, same).players.get(0).lastProcessedInput);
+        assertEquals(950, applyDelta(base, changed).players.get(0).lastProcessedInput);
+        // Back to 0 (player rejoined) has to get through as well
+        GameState reset = same.copy();
+        reset.players.get(0).lastProcessedInput = 0;
+        assertEquals(0, applyDelta(base, reset).players.get(0).lastProcessedInput);
+    }
+
+    @Test
+    void deltaWithoutItsBaselineDecodesToNull() throws IOException {
+        GameState base = sampleState();
+        GameState next = base.copy();
+        next.sequence = base.sequence + 1;
+
+        ByteBuffer body = body(WireCodec.encodeDelta(base, next));
+        assertEquals(WireCodec.MSG_DELTA, WireCodec.openFrame(body));
+        assertNull(WireCodec.decodeDelta(body, new SnapshotHistory(16)));
+    }
+
+    // encodeDelta on one side, decodeDelta against the same baseline on the other
+    private static GameState applyDelta(GameState base, GameState state) throws IOException {
+        SnapshotHistory history = new SnapshotHistory(16);
+        history.put(base);
+        ByteBuffer body = body(WireCodec.encodeDelta(base, state));
+        assertEquals(WireCodec.MSG_DELTA, WireCodec.openFrame(body));
+        GameState decoded = WireCodec.decodeDelta(body, history);
+        assertFalse(body.hasRemaining());
+        return decoded;
+    }
+
+    // A snapshot with a bit of everything: a human with an input sequence, bots, a goalkeeper
+    static GameState sampleState() {
+        GameState state = new GameState();
+        state.sequence = 812;
+        state.currentPhase = GameState.Phase.PLAYING;
+        state.countdownValue = 0;
+        state.scoreRed = 2;
+        state.scoreBlue = 1;
+        state.timeString = "37:05";
+        state.weather = "RAINY";
+        state.winner = "";
+        state.ballX = 600.5;
+        state.ballY = 399.25;
+
+        GameState.PlayerState human = new GameState.PlayerState(4242, "Zoë", "RED", 450.125, 300.0625, false);
+        human.isApproved = true;
+        human.lastProcessedInput = 901;
+        human.stamina = 73;
+        human.goals = 2;
+        GameState.PlayerState keeper = new GameState.PlayerState(-200, "Bot_B1", "BLUE", 1050, 400, true);
+        keeper.isGoalKeeper = true;
+        GameState.PlayerState bot = new GameState.PlayerState(-101, "Bot_R2", "RED", 0, 800, true);
+        state.players.addAll(Arrays.asList(human, keeper, bot));
+        return state;
+    }
+
+    // Everything the codec keeps (positions are exact here because they are multiples of 1/16)
+    static void assertSameState(GameState expected, GameState actual) {
+        assertEquals(expected.sequence, actual.sequence);
+        assertEquals(expected.currentPhase, actual.currentPhase);
+        assertEquals(expected.countdownValue, actual.countdownValue);
+        assertEquals(expected.scoreRed, actual.scoreRed);
+        assertEquals(expected.scoreBlue, actual.scoreBlue);
+        assertEquals(expected.timeString, actual.timeString);
+        assertEquals(expected.weather, actual.weather);
+        assertEquals(expected.winner, actual.winner);
+        assertEquals(expected.ballX, actual.ballX);
+        assertEquals(expected.ballY, actual.ballY);
+        assertEquals(expected.players.size(), actual.players.size());
+        for (int i = 0; i < expected.players.size(); i++) {
+            GameState.PlayerState e = expected.players.get(i), a = actual.players.get(i);
+            assertEquals(e.id, a.id);
+            assertEquals(e.name, a.name);
+            assertEquals(e.team, a.team);
+            assertEquals(e.x, a.x);
+            assertEquals(e.y, a.y);
+            assertEquals(e.stamina, a.stamina);
+            assertEquals(e.goals, a.goals);
+            assertEquals(e.isBot, a.isBot);
+            assertEquals(e.isApproved, a.isApproved);
+            assertEquals(e.isGoalKeeper, a.isGoalKeeper);
+            assertEquals(e.lastProcessedInput, a.lastProcessedInput);
+        }
+    }
+
+    // The frame without its length prefix, like readFrame returns it
+    static ByteBuffer body(byte[] frame) {
+        return ByteBuffer.wrap(frame, 4, frame.length - 4).slice();
+    }
+
+    private interface Decoder {
+        void decode(ByteBuffer body) throws IOException;
+    }
+
+    // Every shorter version of the frame's payload must fail with an IOException
+    private static void assertTruncatedThrows(byte[] frame, Decoder decoder) throws IOException {
+        int payload = body(frame).remaining() - 2;
+        for (int keep = 0; keep < payload; keep++) {
+            ByteBuffer body = ByteBuffer.wrap(Arrays.copyOf(frame, 4 + 2 + keep), 4, 2 + keep).slice();
+            WireCodec.openFrame(body);
+            assertThrows(IOException.class, () -> decoder.decode(body), "payload cut to " + keep + " bytes");
+        }
+    }
+}
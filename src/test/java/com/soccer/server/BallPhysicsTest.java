@@ -0,0 +1,81 @@
+package com.soccer.server;
+
+import com.soccer.common.Constants;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BallPhysicsTest {
+    private static final double BALL_DIST = Constants.PLAYER_RADIUS + Constants.BALL_RADIUS;
+    private static final double SHOT_SPEED = 1200; // twice a normal kick
+    private static final int[] LOW_TICK_RATES = {5, 10, 20};
+
+    @Test
+    void fastShotScoresAtLowTickRates() {
+        for (int rate : LOW_TICK_RATES) {
+            PhysicsWorld w = new PhysicsWorld(4);
+            BallPhysics ball = physics(w);
+            w.ballX = 150;
+            w.ballY = Constants.HEIGHT / 2.0 + 40;
+            w.ballVx = -SHOT_SPEED;
+
+            int goal = BallPhysics.NO_GOAL;
+            for (int tick = 0; tick < rate && goal == BallPhysics.NO_GOAL; tick++) goal = ball.move(w, 1.0 / rate);
+
+            assertEquals(BallPhysics.GOAL_LEFT, goal, rate + " ticks/s");
+        }
+    }
+
+    @Test
+    void fastShotIsDeflectedByAPlayerAtLowTickRates() {
+        for (int rate : LOW_TICK_RATES) {
+            PhysicsWorld w = new PhysicsWorld(4);
+            int keeper = w.add(1, "Keeper", PhysicsWorld.BLUE, true);
+            w.x[keeper] = 120;
+            w.y[keeper] = Constants.HEIGHT / 2.0;
+            BallPhysics ball = physics(w);
+            w.ballX = 600;
+            w.ballY = Constants.HEIGHT / 2.0;
+            w.ballVx = -SHOT_SPEED;
+
+            boolean touched = false;
+            for (int tick = 0; tick < rate; tick++) {
+                assertEquals(BallPhysics.NO_GOAL, ball.move(w, 1.0 / rate), rate + " ticks/s: went through the keeper");
+                touched |= ball.toucher == keeper;
+                double d = Math.hypot(w.ballX - w.x[keeper], w.ballY - w.y[keeper]);
+                assertTrue(d >= BALL_DIST - 1e-9, rate + " ticks/s: ball inside the keeper, " + d);
+            }
+            assertTrue(touched, rate + " ticks/s");
+            assertTrue(w.ballVx > 0, rate + " ticks/s");
+        }
+    }
+
+    @Test
+    void travelLeftAfterABounceIsNotLost() {
+        // Head-on into a standing player in the middle of a tick: up to the contact at full speed,
+        // from there back out at 0.6 of it (BALL_RESTITUTION) for the rest of the tick
+        double dt = 1.0 / 5;
+        PhysicsWorld w = new PhysicsWorld(4);
+        int p = w.add(1, "Wall", PhysicsWorld.RED, true);
+        w.x[p] = 600;
+        w.y[p] = 400;
+        BallPhysics ball = physics(w);
+        w.ballX = 600 + BALL_DIST + 100;
+        w.ballY = 400;
+        w.ballVx = -SHOT_SPEED;
+
+        ball.move(w, dt);
+
+        double beforeContact = 100 / SHOT_SPEED;
+        assertEquals(600 + BALL_DIST + 0.6 * SHOT_SPEED * (dt - beforeContact), w.ballX, 1e-6);
+        assertEquals(0.6 * SHOT_SPEED, w.ballVx, 1e-9);
+        assertEquals(p, ball.toucher);
+    }
+
+    private static BallPhysics physics(PhysicsWorld w) {
+        SpatialGrid grid = new SpatialGrid(Constants.WIDTH, Constants.HEIGHT, 64);
+        grid.rebuild(w.x, w.y, w.count);
+        return new BallPhysics(grid);
+    }
+}
@@ -0,0 +1,121 @@
+package com.soccer.server;
+
+import com.soccer.common.Constants;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CollisionsTest {
+    private static final double PLAYER_DIST = Constants.PLAYER_RADIUS * 2;
+    private static final double BALL_DIST = Constants.PLAYER_RADIUS + Constants.BALL_RADIUS;
+    private static final double EPS = 1e-9;
+
+    private final Collisions collisions = new Collisions(new SpatialGrid(Constants.WIDTH, Constants.HEIGHT, 64));
+
+    @Test
+    void overlappingPlayersArePushedApart() {
+        PhysicsWorld w = world(0);
+        int a = player(w, 1, 400, 300);
+        int b = player(w, 2, 410, 305);
+
+        collisions.resolve(w);
+
+        assertTrue(Math.hypot(w.x[b] - w.x[a], w.y[b] - w.y[a]) >= PLAYER_DIST - EPS);
+    }
+
+    @Test
+    void playersAtTheEdgeStayOnThePitch() {
+        PhysicsWorld w = world(0);
+        int a = player(w, 1, 0, 0);
+        int b = player(w, 2, 5, 3);
+        int c = player(w, 3, Constants.WIDTH, Constants.HEIGHT);
+        int d = player(w, 4, Constants.WIDTH - 4, Constants.HEIGHT - 6);
+
+        collisions.resolve(w);
+
+        for (int i : new int[]{a, b, c, d}) {
+            assertTrue(w.x[i] >= 0 && w.x[i] <= Constants.WIDTH, "x of slot " + i + " = " + w.x[i]);
+            assertTrue(w.y[i] >= 0 && w.y[i] <= Constants.HEIGHT, "y of slot " + i + " = " + w.y[i]);
+        }
+    }
+
+    @Test
+    void ballBouncesOffAStandingPlayer() {
+        PhysicsWorld w = world(0);
+        int p = player(w, 1, 600, 400);
+        // Ball already a little inside the player, rolling straight at it
+        w.ballX = 600 + BALL_DIST - 3;
+        w.ballY = 400;
+        w.ballVx = -100;
+        w.ballVy = 0;
+
+        int toucher = collisions.resolve(w);
+
+        assertEquals(p, toucher);
+        assertEquals(60, w.ballVx, EPS);   // restitution 0.6, now moving away
+        assertEquals(0, w.ballVy, EPS);
+        assertTrue(Math.hypot(w.ballX - w.x[p], w.ballY - w.y[p]) >= BALL_DIST - EPS);
+        assertEquals(600, w.x[p], EPS);     // the ball doesn't move the player
+    }
+
+    @Test
+    void gridGivesTheSameResultAsCheckingEveryPair() {
+        for (long seed = 1; seed <= 20; seed++) {
+            PhysicsWorld grid = world(seed), naive = world(seed);
+            collisions.resolve(grid);
+            naiveSeparate(naive);
+
+            assertArrayEquals(naive.x, grid.x, EPS, "x, seed " + seed);
+            assertArrayEquals(naive.y, grid.y, EPS, "y, seed " + seed);
+        }
+    }
+
+    // 100 players spread over the pitch (seed 0 = empty world)
+    private static PhysicsWorld world(long seed) {
+        PhysicsWorld w = new PhysicsWorld(100);
+        w.ballX = -1000; // Out of everyone's way unless a test puts it somewhere
+        w.ballY = -1000;
+        if (seed == 0) return w;
+        Random random = new Random(seed);
+        for (int i = 0; i < 100; i++) {
+            player(w, i + 1, random.nextDouble() * Constants.WIDTH, random.nextDouble() * Constants.HEIGHT);
+        }
+        return w;
+    }
+
+    private static int player(PhysicsWorld w, int id, double x, double y) {
+        int i = w.add(id, "P" + id, (byte) (id % 2), true);
+        w.x[i] = x;
+        w.y[i] = y;
+        return i;
+    }
+
+    // The same separation rule as Collisions, testing every pair in order
+    private static void naiveSeparate(PhysicsWorld w) {
+        for (int i = 0; i < w.count; i++) {
+            for (int j = i + 1; j < w.count; j++) {
+                double dx = w.x[j] - w.x[i], dy = w.y[j] - w.y[i];
+                double d2 = dx * dx + dy * dy;
+                if (d2 >= PLAYER_DIST * PLAYER_DIST) continue;
+                double d = Math.sqrt(d2);
+                double nx, ny;
+                if (d > 1e-9) { nx = dx / d; ny = dy / d; }
+                else { nx = 1; ny = 0; d = 0; }
+                double push = (PLAYER_DIST - d) / 2;
+                w.x[i] -= nx * push; w.y[i] -= ny * push;
+                w.x[j] += nx * push; w.y[j] += ny * push;
+                clamp(w, i);
+                clamp(w, j);
+            }
+        }
+    }
+
+    private static void clamp(PhysicsWorld w, int i) {
+        w.x[i] = Math.max(0, Math.min(Constants.WIDTH, w.x[i]));
+        w.y[i] = Math.max(0, Math.min(Constants.HEIGHT, w.y[i]));
+    }
+}
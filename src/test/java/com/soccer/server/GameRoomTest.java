@@ -0,0 +1,83 @@
+package com.soccer.server;
+
+import com.soccer.common.GameState;
+import com.soccer.common.InputPacket;
+import com.soccer.common.PlayerMovement;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class GameRoomTest {
+    private static final int ME = 1;
+
+    @Test
+    void queuedInputsAreEachAppliedAsOneStep() {
+        GameRoom room = playingRoom();
+        GameState.PlayerState before = me(room);
+
+        // Five inputs arrive together before one tick
+        int n = 5;
+        for (int seq = 1; seq <= n; seq++) room.submitInput(ME, input(seq, seq % 2 == 0));
+        room.step();
+
+        // Same as five separate steps of one tick each
+        double[] moved = {before.x, before.y, 0, 0};
+        for (int seq = 1; seq <= n; seq++) {
+            PlayerMovement.step(input(seq, seq % 2 == 0), moved[0], moved[1], GameRoom.TICK_DT, moved);
+        }
+        GameState.PlayerState after = me(room);
+        assertEquals(moved[0], after.x, 1e-9);
+        assertEquals(moved[1], after.y, 1e-9);
+        assertEquals(n, after.lastProcessedInput);
+    }
+
+    @Test
+    void noInputMeansNoMovement() {
+        GameRoom room = playingRoom();
+        room.submitInput(ME, input(1, false));
+        room.step();
+        GameState.PlayerState moved = me(room);
+
+        room.step(); // Nothing came in for this tick
+        GameState.PlayerState after = me(room);
+        assertEquals(moved.x, after.x, 1e-9);
+        assertEquals(moved.y, after.y, 1e-9);
+    }
+
+    // A room with one approved human, right after the countdown
+    private static GameRoom playingRoom() {
+        GameRoom room = new GameRoom(GameClock.simulated(), 7);
+        room.requestJoin(ME, "Tester");
+        room.submitCommand(command("START", 0));
+        room.submitCommand(command("APPROVE", ME));
+        while (room.getLatestSnapshot().currentPhase != GameState.Phase.PLAYING) room.step();
+        return room;
+    }
+
+    private static InputPacket command(String name, int target) {
+        InputPacket pkt = new InputPacket();
+        pkt.command = name;
+        pkt.targetIdToApprove = target;
+        return pkt;
+    }
+
+    // Running down and to the right, away from the ball and everyone else
+    private static InputPacket input(int sequence, boolean sprint) {
+        InputPacket pkt = new InputPacket();
+        pkt.id = ME;
+        pkt.sequence = sequence;
+        pkt.down = true;
+        pkt.right = true;
+        pkt.sprint = sprint;
+        return pkt;
+    }
+
+    private static GameState.PlayerState me(GameRoom room) {
+        for (GameState.PlayerState p : room.getLatestSnapshot().players) {
+            if (p.id == ME) return p;
+        }
+        assertNotNull(null, "player " + ME + " is not in the room");
+        return null;
+    }
+}
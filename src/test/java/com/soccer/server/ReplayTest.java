@@ -0,0 +1,85 @@
+package com.soccer.server;
+
+import com.soccer.common.GameState;
+import com.soccer.common.InputPacket;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplayTest {
+    private static final int TICKS = 1500; // 25 s at 60 Hz: kick-off, bots running, a few shots
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void seededMatchReplaysTickForTick() throws IOException {
+        Path file = dir.resolve("match.replay");
+        record(file, 42);
+
+        ReplayVerifier.Result result = ReplayVerifier.verify(file);
+
+        assertEquals(TICKS, result.ticks);
+        assertEquals(0, result.mismatches, "first desync at tick " + result.firstMismatch);
+    }
+
+    @Test
+    void nullNameIsRecordedAsNoName() throws IOException {
+        Path file = dir.resolve("nameless.replay");
+        record(file, 7);
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertTrue(lines.stream().anyMatch(l -> l.matches("J \\d+ 2")), "join without a name field");
+        assertTrue(lines.stream().noneMatch(l -> l.startsWith("J ") && l.endsWith(" null")));
+    }
+
+    // A short match with two humans (one of them without a name) running about and shooting
+    private static void record(Path file, long seed) throws IOException {
+        GameRoom room = new GameRoom(GameClock.simulated(), seed);
+        room.record(file);
+        room.requestJoin(1, "Tester");
+        room.requestJoin(2, null);
+        room.submitCommand(command("START", 0));
+        room.submitCommand(command("APPROVE", 1));
+        room.submitCommand(command("APPROVE", 2));
+
+        int sequence = 0;
+        for (int tick = 0; tick < TICKS; tick++) {
+            if (room.getLatestSnapshot().currentPhase == GameState.Phase.PLAYING) {
+                sequence++;
+                room.submitInput(1, keys(sequence, tick / 60 % 4, tick % 45 == 0));
+                if (tick % 3 == 0) room.submitInput(2, keys(sequence, (tick / 90 + 2) % 4, false));
+            }
+            room.step();
+        }
+        room.stopRecording();
+    }
+
+    private static InputPacket command(String name, int target) {
+        InputPacket pkt = new InputPacket();
+        pkt.command = name;
+        pkt.targetIdToApprove = target;
+        return pkt;
+    }
+
+    // Runs one of four directions, shooting now and then
+    private static InputPacket keys(int sequence, int direction, boolean shoot) {
+        InputPacket pkt = new InputPacket();
+        pkt.sequence = sequence;
+        pkt.up = direction == 0;
+        pkt.right = direction == 1;
+        pkt.down = direction == 2;
+        pkt.left = direction == 3;
+        pkt.sprint = direction % 2 == 0;
+        pkt.shoot = shoot;
+        return pkt;
+    }
+}